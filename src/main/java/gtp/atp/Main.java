@@ -38,8 +38,13 @@ public class Main {
                 "Should find 2 email addresses");
 
         System.out.println("\nTEST GROUP 2: Invalid Pattern Handling");
-        RegexProcessor invalidProcessor = new RegexProcessor("[a-z");
-        testMatch(invalidProcessor, "test", "Should handle invalid pattern gracefully");
+        System.out.println("\nTest: Should reject invalid pattern at construction");
+        try {
+            new RegexProcessor("[a-z");
+            System.out.println("RESULT: Invalid pattern was accepted");
+        } catch (IllegalArgumentException e) {
+            System.out.println("RESULT: Rejected - " + e.getMessage());
+        }
     }
 
     private static void testMatch(RegexProcessor processor, String input, String description) {
@@ -108,7 +113,12 @@ public class Main {
         };
 
         for (String pattern : patterns) {
-            processor = new RegexProcessor(pattern, processor.historyManager);
+            try {
+                processor = new RegexProcessor(pattern, processor.historyManager);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Skipping invalid pattern: " + pattern);
+                continue;
+            }
             for (int i = 0; i < 3; i++) {
                 processor.findMatchesAndRecord("test input");
                 try { Thread.sleep(10); }
@@ -1,14 +1,31 @@
 package gtp.atp.controller;
 
 import gtp.atp.exception.InvalidRegexException;
+import gtp.atp.model.EvictionPolicy;
+import gtp.atp.model.ExecutionBudget;
+import gtp.atp.model.MatchRow;
+import gtp.atp.model.MatchSpans;
 import gtp.atp.service.RegexHistoryManager;
+import gtp.atp.service.RegexHistoryStore;
+import gtp.atp.util.BacktrackingAnalyzer;
 import gtp.atp.util.ControllerUtils;
+import gtp.atp.util.PatternCache;
+import javafx.animation.PauseTransition;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.control.Tooltip;
@@ -17,11 +34,17 @@ import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 import javafx.event.ActionEvent;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.List;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,12 +53,73 @@ import gtp.atp.service.RegexProcessor;
 /**
  * Controller class for handling the main data flow operations in the application.
  * Manages text input/output, regex pattern matching, and file operations.
+ * Searches, replacements and file transfers run as {@link Task}s on a background executor, one at a
+ * time, with their progress shown in the progress bar and a cancel button that stops the running task.
+ * Search results are listed in a virtualized table backed by a {@link MatchRowList}, so only the
+ * visible rows are ever materialized; replacement results are shown as text.
+ * With live preview enabled, the pattern is re-run as it is typed: keystrokes are debounced, each run
+ * cancels the previous one, and the lines around the caret are shown before the rest of the input.
  */
 public class DataFlowController {
     private static final Logger LOGGER = Logger.getLogger(DataFlowController.class.getName());
 
+    /**
+     * Limits applied to every search and replace started from the UI, so a pattern that
+     * backtracks catastrophically is aborted instead of freezing the window.
+     */
+    private static final ExecutionBudget INTERACTIVE_BUDGET = ExecutionBudget.ofTimeout(Duration.ofMinutes(1));
+
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Largest file that can be loaded into the input area, which holds the whole text in memory.
+     */
+    private static final long MAX_UPLOAD_BYTES = 256L * 1024 * 1024;
+
+    /**
+     * Memory the match table may use for match offsets; matches beyond it are counted but not listed.
+     */
+    private static final long MATCH_MEMORY_BUDGET_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Limits applied to each live preview run, which is restarted on every pause in typing anyway.
+     */
+    private static final ExecutionBudget LIVE_SEARCH_BUDGET = ExecutionBudget.ofTimeout(Duration.ofSeconds(5));
+
+    private static final double LIVE_SEARCH_DELAY_MILLIS = 150;
+
+    /**
+     * Patterns kept compiled for the live preview, which sees a new pattern on every keystroke.
+     */
+    private static final int LIVE_PATTERN_CACHE_CAPACITY = 32;
+
+    /**
+     * Directory under the user's home where the regex history is persisted.
+     */
+    private static final String HISTORY_DIRECTORY = ".atp";
+
+    /**
+     * Most patterns kept in the regex history; the least recently used are dropped beyond it.
+     */
+    private static final int HISTORY_CAPACITY = 10_000;
+
+    private static RegexHistoryManager sharedHistoryManager;
+
+    private final ExecutorService backgroundExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "dataflow-background");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Task<?> currentTask;
+    private MatchRowList matchRows;
+    private LiveSearchTask liveSearchTask;
+    private final PauseTransition liveSearchDelay =
+            new PauseTransition(javafx.util.Duration.millis(LIVE_SEARCH_DELAY_MILLIS));
+    // Kept apart from the shared cache, so half-typed patterns do not evict the ones searches reuse
+    private final PatternCache livePatternCache = new PatternCache(LIVE_PATTERN_CACHE_CAPACITY);
+
     private RegexProcessor regexProcessor;
-    private final RegexHistoryManager historyManager = new RegexHistoryManager();
+    private final RegexHistoryManager historyManager = sharedHistoryManager();
     private Scene mainScene; // Store reference to main scene
     private Parent mainRoot;
 
@@ -51,9 +135,70 @@ public class DataFlowController {
     @FXML
     private TextField replacementTextField;
 
+    @FXML
+    private CheckBox liveSearchCheckBox;
+
     @FXML
     private Button uploadButton;
 
+    @FXML
+    private TableView<MatchRow> matchTable;
+
+    @FXML
+    private TableColumn<MatchRow, Number> matchNumberColumn;
+
+    @FXML
+    private TableColumn<MatchRow, Number> matchLineColumn;
+
+    @FXML
+    private TableColumn<MatchRow, Number> matchStartColumn;
+
+    @FXML
+    private TableColumn<MatchRow, Number> matchEndColumn;
+
+    @FXML
+    private TableColumn<MatchRow, String> matchTextColumn;
+
+    @FXML
+    private Label matchSummaryLabel;
+
+    @FXML
+    private ProgressBar progressBar;
+
+    @FXML
+    private Button cancelButton;
+
+    /**
+     * Initializes the match table columns and live preview. Called automatically after FXML loading.
+     */
+    @FXML
+    private void initialize() {
+        matchNumberColumn.setCellValueFactory(cell -> new ReadOnlyIntegerWrapper(cell.getValue().number()));
+        matchLineColumn.setCellValueFactory(cell -> new ReadOnlyIntegerWrapper(cell.getValue().lineNumber()));
+        matchStartColumn.setCellValueFactory(cell ->
+                new ReadOnlyIntegerWrapper(cell.getValue().match().getStartIndex()));
+        matchEndColumn.setCellValueFactory(cell ->
+                new ReadOnlyIntegerWrapper(cell.getValue().match().getEndIndex()));
+        matchTextColumn.setCellValueFactory(cell ->
+                new ReadOnlyStringWrapper(cell.getValue().match().getMatchedText()));
+        matchSummaryLabel.managedProperty().bind(matchSummaryLabel.visibleProperty());
+
+        liveSearchDelay.setOnFinished(e -> runLiveSearch());
+        regexPatternField.textProperty().addListener((observable, oldText, newText) -> {
+            if (liveSearchCheckBox.isSelected()) {
+                liveSearchDelay.playFromStart();
+            }
+        });
+        liveSearchCheckBox.selectedProperty().addListener((observable, wasSelected, selected) -> {
+            if (selected) {
+                liveSearchDelay.playFromStart();
+            } else {
+                liveSearchDelay.stop();
+                cancelLiveSearch();
+            }
+        });
+    }
+
     /**
      * Sets the main root view for navigation purposes.
      *
@@ -83,16 +228,46 @@ public class DataFlowController {
         File selectedFile = fileChooser.showOpenDialog(stage);
 
         if (selectedFile != null) {
-            try {
-                LOGGER.info("Attempting to read file: " + selectedFile.getPath());
-                String content = new String(Files.readAllBytes(Paths.get(selectedFile.getPath())));
-                inputTextArea.setText(content);
-                LOGGER.info("File loaded successfully. Character count: " + content.length());
-            } catch (IOException e) {
+            LOGGER.info("Attempting to read file: " + selectedFile.getPath());
+            if (selectedFile.length() > MAX_UPLOAD_BYTES) {
+                LOGGER.warning("File too large to load: " + selectedFile.getPath());
+                ControllerUtils.showAlert("File Too Large", String.format("Files larger than %d MB cannot be loaded.",
+                        MAX_UPLOAD_BYTES / (1024 * 1024)));
+                return;
+            }
+            Path path = selectedFile.toPath();
+            Task<String> task = new Task<>() {
+                @Override
+                protected String call() throws IOException {
+                    long size = Files.size(path);
+                    ByteArrayOutputStream content = new ByteArrayOutputStream((int) Math.min(size, MAX_UPLOAD_BYTES));
+                    try (InputStream in = Files.newInputStream(path)) {
+                        byte[] buffer = new byte[IO_BUFFER_SIZE];
+                        long read = 0;
+                        int n;
+                        while ((n = in.read(buffer)) > 0 && !isCancelled()) {
+                            read += n;
+                            if (read > MAX_UPLOAD_BYTES) {
+                                // Checked before loading, so the file has grown since
+                                throw new IOException("File is too large to load: " + path);
+                            }
+                            content.write(buffer, 0, n);
+                            updateProgress(read, size);
+                        }
+                    }
+                    return content.toString(StandardCharsets.UTF_8);
+                }
+            };
+            task.setOnSucceeded(e -> {
+                inputTextArea.setText(task.getValue());
+                LOGGER.info("File loaded successfully. Character count: " + task.getValue().length());
+            });
+            task.setOnFailed(e -> {
                 String errorMsg = "Error loading file: " + selectedFile.getPath();
-                LOGGER.log(Level.SEVERE, errorMsg, e);
+                LOGGER.log(Level.SEVERE, errorMsg, task.getException());
                 inputTextArea.setText(errorMsg);
-            }
+            });
+            runInBackground(task);
         } else {
             LOGGER.fine("File selection was cancelled by user");
         }
@@ -121,18 +296,99 @@ public class DataFlowController {
         }
 
         LOGGER.config("Processing regex search with pattern: " + regexPattern);
-        regexProcessor = new RegexProcessor(regexPattern, historyManager);
+        if (!createProcessor(regexPattern)) {
+            return;
+        }
 
-        List<String> regexMatches = regexProcessor.findMatchesAndRecord(inputText);
+        MatchRowList rows = new MatchRowList(inputText, regexPattern, MATCH_MEMORY_BUDGET_BYTES);
+        showMatches(rows);
+        RegexSearchTask task = new RegexSearchTask(regexProcessor, inputText, INTERACTIVE_BUDGET, batch -> {
+            rows.addAll(batch);
+            updateMatchSummary();
+        });
+        task.setOnSucceeded(e -> {
+            int matchCount = task.getValue();
+            if (matchCount == 0) {
+                LOGGER.info("No matches found for pattern: " + regexPattern);
+                ControllerUtils.showAlert("No Matches", "No matches found for the given pattern");
+                return;
+            }
+            LOGGER.info("Found " + matchCount + " matches for pattern: " + regexPattern);
+        });
+        task.setOnFailed(e -> reportFailure("Search", regexPattern, task));
+        runInBackground(task);
+    }
 
-        if (regexMatches == null || regexMatches.isEmpty()) {
-            LOGGER.info("No matches found for pattern: " + regexPattern);
-            ControllerUtils.showAlert("No Matches", "No matches found for the given pattern");
+    /**
+     * Re-runs the current pattern against the input as a live preview, without recording it in the history.
+     * Invalid or incomplete patterns are reported in the match summary instead of an alert.
+     */
+    private void runLiveSearch() {
+        cancelLiveSearch();
+        String inputText = inputTextArea.getText();
+        String regexPattern = regexPatternField.getText();
+        if (inputText.isEmpty() || regexPattern.isBlank()) {
+            return;
+        }
+
+        RegexProcessor processor;
+        try {
+            processor = new RegexProcessor(regexPattern, historyManager, livePatternCache);
+        } catch (IllegalArgumentException e) {
+            showLiveStatus("Invalid pattern");
             return;
         }
 
-        LOGGER.info("Found " + regexMatches.size() + " matches for pattern: " + regexPattern);
-        outputTextArea.setText(String.join("\n", regexMatches));
+        LiveSearchTask task = new LiveSearchTask(processor, inputText, inputTextArea.getCaretPosition(),
+                LIVE_SEARCH_BUDGET, MATCH_MEMORY_BUDGET_BYTES, this::showMatches);
+        task.setOnSucceeded(e -> showMatches(task.getValue()));
+        task.setOnFailed(e -> {
+            LOGGER.log(Level.FINE, "Live preview failed for pattern: " + regexPattern, task.getException());
+            showLiveStatus(task.getBudgetException() != null ? "Pattern took too long to preview" : "Preview failed");
+        });
+        liveSearchTask = task;
+        backgroundExecutor.execute(task);
+    }
+
+    private void cancelLiveSearch() {
+        if (liveSearchTask != null) {
+            liveSearchTask.cancel();
+            liveSearchTask = null;
+        }
+    }
+
+    private void showLiveStatus(String status) {
+        matchSummaryLabel.setText(status);
+        matchSummaryLabel.setVisible(true);
+    }
+
+    /**
+     * Switches the output pane to the match table, listing the given rows.
+     *
+     * @param rows the rows to list, or null to switch back to the output text
+     */
+    private void showMatches(MatchRowList rows) {
+        matchRows = rows;
+        matchTable.setItems(rows);
+        matchTable.setVisible(rows != null);
+        outputTextArea.setVisible(rows == null);
+        matchSummaryLabel.setVisible(rows != null);
+        if (rows != null) {
+            outputTextArea.clear();
+            updateMatchSummary();
+        }
+    }
+
+    /**
+     * Updates the label above the match table with the number of matches found so far.
+     */
+    private void updateMatchSummary() {
+        if (matchRows.isTruncated()) {
+            matchSummaryLabel.setText(String.format("Showing first %,d of %,d matches (memory limit reached)",
+                    matchRows.size(), matchRows.getTotalMatches()));
+        } else {
+            matchSummaryLabel.setText(String.format("%,d matches", matchRows.getTotalMatches()));
+        }
     }
 
     /**
@@ -168,14 +424,143 @@ public class DataFlowController {
                 "Processing regex replace - Pattern: %s, Replacement: %s",
                 regexPattern, replacement));
 
-        regexProcessor = new RegexProcessor(regexPattern, historyManager);
-
-        String newText = regexProcessor.findAndReplace(inputText, replacement);
+        if (!createProcessor(regexPattern)) {
+            return;
+        }
 
-        if (newText != null) {
+        RegexReplaceTask task = new RegexReplaceTask(regexProcessor, inputText, replacement, INTERACTIVE_BUDGET);
+        task.setOnSucceeded(e -> {
             LOGGER.info("Replace operation completed successfully");
-            outputTextArea.setText(newText);
+            showMatches(null);
+            outputTextArea.setText(task.getValue());
+        });
+        task.setOnFailed(e -> reportFailure("Replace", regexPattern, task));
+        runInBackground(task);
+    }
+
+    /**
+     * Runs a task on the background executor, cancelling any task or live preview still running,
+     * and shows its progress until it completes.
+     *
+     * @param task the task to run
+     */
+    private void runInBackground(Task<?> task) {
+        cancelLiveSearch();
+        if (currentTask != null && currentTask.isRunning()) {
+            LOGGER.fine("Cancelling previous background task");
+            currentTask.cancel();
+        }
+        currentTask = task;
+
+        progressBar.progressProperty().bind(task.progressProperty());
+        progressBar.setVisible(true);
+        cancelButton.setDisable(false);
+        task.stateProperty().addListener((observable, oldState, newState) -> {
+            boolean finished = newState == Worker.State.SUCCEEDED
+                    || newState == Worker.State.FAILED
+                    || newState == Worker.State.CANCELLED;
+            if (finished && currentTask == task) {
+                progressBar.progressProperty().unbind();
+                progressBar.setVisible(false);
+                cancelButton.setDisable(true);
+                currentTask = null;
+            }
+        });
+        backgroundExecutor.execute(task);
+    }
+
+    /**
+     * Cancels the running background task, interrupting its matcher or file transfer.
+     */
+    @FXML
+    private void handleCancel() {
+        if (currentTask != null && currentTask.isRunning()) {
+            LOGGER.info("Background task cancelled by user");
+            currentTask.cancel();
+        }
+    }
+
+    /**
+     * Gets the history manager shared by every main view, which is loaded again on returning from
+     * the history view, creating it on first use. Only one manager can hold the stored history.
+     */
+    private static synchronized RegexHistoryManager sharedHistoryManager() {
+        if (sharedHistoryManager == null) {
+            sharedHistoryManager = createHistoryManager();
         }
+        return sharedHistoryManager;
+    }
+
+    /**
+     * Closes the stored regex history, releasing it for the next run. Called once when the
+     * application stops.
+     */
+    public static synchronized void shutdown() {
+        if (sharedHistoryManager == null) {
+            return;
+        }
+        try {
+            sharedHistoryManager.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not close regex history", e);
+        }
+    }
+
+    /**
+     * Creates the history manager, persisting history under the user's home directory. If the
+     * stored history cannot be opened, or another instance of the application holds it, history
+     * is kept for this session only.
+     */
+    private static RegexHistoryManager createHistoryManager() {
+        Path directory = Path.of(System.getProperty("user.home"), HISTORY_DIRECTORY);
+        try {
+            return new RegexHistoryManager(RegexHistoryStore.open(directory), HISTORY_CAPACITY, EvictionPolicy.lru());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cannot open regex history in " + directory + ", keeping it in memory only", e);
+            return new RegexHistoryManager(HISTORY_CAPACITY, EvictionPolicy.lru());
+        }
+    }
+
+    /**
+     * Compiles the given pattern into a new processor, alerting the user if the pattern is invalid.
+     *
+     * @param regexPattern the pattern entered by the user
+     * @return true if the processor was created, false if the pattern is invalid
+     */
+    private boolean createProcessor(String regexPattern) {
+        try {
+            regexProcessor = new RegexProcessor(regexPattern, historyManager);
+            for (String risk : BacktrackingAnalyzer.findRisks(regexPattern)) {
+                LOGGER.warning("Pattern may backtrack catastrophically: " + regexPattern + " - " + risk);
+            }
+            return true;
+        } catch (IllegalArgumentException e) {
+            LOGGER.warning("Invalid regex pattern: " + regexPattern);
+            ControllerUtils.showAlert("Invalid Regex", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Tells the user why a regex task failed.
+     *
+     * @param operation the name of the failed operation
+     * @param regexPattern the pattern that was running
+     * @param task the failed task
+     */
+    private void reportFailure(String operation, String regexPattern, RegexTask<?> task) {
+        if (task.getBudgetException() == null) {
+            LOGGER.log(Level.SEVERE, operation + " failed for pattern: " + regexPattern, task.getException());
+            ControllerUtils.showAlert(operation + " Failed", String.valueOf(task.getException().getMessage()));
+            return;
+        }
+
+        LOGGER.log(Level.WARNING, operation + " aborted for pattern: " + regexPattern, task.getBudgetException());
+        String hint = BacktrackingAnalyzer.isRisky(regexPattern)
+                ? " The pattern contains nested quantifiers, which can backtrack catastrophically."
+                : "";
+        ControllerUtils.showAlert(operation + " Aborted",
+                "The pattern took too long to run and was stopped." + hint);
     }
 
     /**
@@ -185,7 +570,8 @@ public class DataFlowController {
     @FXML
     private void handleSave() {
         LOGGER.fine("Initiating save operation");
-        if (outputTextArea.getText().isBlank()) {
+        MatchSpans matches = matchRows != null ? matchRows.getSpans() : null;
+        if (matches != null ? matches.isEmpty() : outputTextArea.getText().isBlank()) {
             LOGGER.warning("Save attempted with empty output");
             ControllerUtils.showAlert("Empty Output", "No content to save");
             return;
@@ -201,15 +587,44 @@ public class DataFlowController {
         File file = fileChooser.showSaveDialog(stage);
 
         if (file != null) {
-            try {
-                LOGGER.info("Attempting to save to file: " + file.getPath());
-                Files.write(Paths.get(file.getPath()), outputTextArea.getText().getBytes());
-                LOGGER.info("File saved successfully");
-            } catch (IOException e) {
+            LOGGER.info("Attempting to save to file: " + file.getPath());
+            String output = matches == null ? outputTextArea.getText() : null;
+            Task<Void> task = new Task<>() {
+                @Override
+                protected Void call() throws IOException {
+                    try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                        if (matches != null) {
+                            // Matches are streamed from the input one per line, never joined in memory
+                            for (int i = 0; i < matches.size() && !isCancelled(); i++) {
+                                matches.appendTo(i, writer);
+                                writer.newLine();
+                                if ((i & 1023) == 0) {
+                                    updateProgress(i, matches.size());
+                                }
+                            }
+                            return null;
+                        }
+                        for (int written = 0; written < output.length() && !isCancelled(); ) {
+                            int end = Math.min(output.length(), written + IO_BUFFER_SIZE);
+                            writer.write(output, written, end - written);
+                            written = end;
+                            updateProgress(written, output.length());
+                        }
+                    }
+                    return null;
+                }
+            };
+            task.setOnSucceeded(e -> LOGGER.info("File saved successfully"));
+            task.setOnFailed(e -> {
                 String errorMsg = "Error saving file: " + file.getPath();
-                LOGGER.log(Level.SEVERE, errorMsg, e);
-                outputTextArea.setText(errorMsg);
-            }
+                LOGGER.log(Level.SEVERE, errorMsg, task.getException());
+                if (matches != null) {
+                    ControllerUtils.showAlert("Save Failed", errorMsg);
+                } else {
+                    outputTextArea.setText(errorMsg);
+                }
+            });
+            runInBackground(task);
         } else {
             LOGGER.fine("Save operation cancelled by user");
         }
@@ -232,6 +647,7 @@ public class DataFlowController {
     private void handleClear() {
         LOGGER.fine("Clearing input and output fields");
         inputTextArea.clear();
+        showMatches(null);
         outputTextArea.clear();
     }
 
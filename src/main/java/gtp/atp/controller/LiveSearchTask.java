@@ -0,0 +1,101 @@
+package gtp.atp.controller;
+
+import gtp.atp.model.ExecutionBudget;
+import gtp.atp.model.MatchSpans;
+import gtp.atp.service.RegexProcessor;
+import gtp.atp.util.BudgetedCharSequence;
+import javafx.application.Platform;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+
+/**
+ * Previews the matches of a pattern while it is being typed.
+ * The lines around the caret are searched first and handed to the FX thread as a preview, then the
+ * whole input is searched and the complete result becomes the task's value. Both results are built
+ * entirely on the background thread before they are published, as {@link MatchRowList} allows, so
+ * showing either is a single cheap list swap on the FX thread.
+ * Unlike {@link RegexSearchTask}, a preview does not record the pattern in the history.
+ */
+public class LiveSearchTask extends RegexTask<MatchRowList> {
+    /**
+     * Number of characters around the caret searched before the rest of the input.
+     */
+    public static final int PREVIEW_WINDOW_CHARS = 32 * 1024;
+
+    private final int caretPosition;
+    private final long memoryBudgetBytes;
+    private final Consumer<MatchRowList> previewConsumer;
+
+    /**
+     * Constructs a live search task.
+     *
+     * @param processor the processor whose pattern to preview (cannot be null)
+     * @param input the text to search (cannot be null)
+     * @param caretPosition the caret offset the preview window is centred on
+     * @param budget the limits the whole task must stay within (cannot be null)
+     * @param memoryBudgetBytes the memory budget of each resulting {@link MatchRowList}
+     * @param previewConsumer receives the matches near the caret on the FX thread (cannot be null)
+     * @throws NullPointerException if any object parameter is null
+     */
+    public LiveSearchTask(RegexProcessor processor, String input, int caretPosition, ExecutionBudget budget,
+                          long memoryBudgetBytes, Consumer<MatchRowList> previewConsumer) {
+        super(processor, input, budget);
+        this.caretPosition = Math.max(0, Math.min(caretPosition, input.length()));
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.previewConsumer = Objects.requireNonNull(previewConsumer, "Preview consumer cannot be null");
+    }
+
+    @Override
+    protected MatchRowList call() {
+        int length = input.length();
+        if (processor.getAnalysis().cannotMatch(input)) {
+            return new MatchRowList(input, processor.getRegex(), memoryBudgetBytes);
+        }
+
+        BudgetedCharSequence text = budgetedInput();
+        int windowStart = lineStart(caretPosition - PREVIEW_WINDOW_CHARS / 2);
+        int windowEnd = lineEnd(caretPosition + PREVIEW_WINDOW_CHARS / 2);
+        if (windowStart > 0 || windowEnd < length) {
+            MatchRowList preview = search(text, windowStart, windowEnd);
+            Platform.runLater(() -> {
+                if (!isCancelled() && !isDone()) {
+                    previewConsumer.accept(preview);
+                }
+            });
+        }
+        return search(text, 0, length);
+    }
+
+    private MatchRowList search(BudgetedCharSequence text, int start, int end) {
+        Matcher matcher = processor.getPattern().matcher(text)
+                .region(start, end)
+                .useTransparentBounds(true)
+                .useAnchoringBounds(false);
+        MatchSpans spans = new MatchSpans(input);
+        while (matcher.find()) {
+            spans.add(matcher.start(), matcher.end());
+        }
+
+        MatchRowList rows = new MatchRowList(input, processor.getRegex(), memoryBudgetBytes);
+        rows.addAll(spans);
+        return rows;
+    }
+
+    private int lineStart(int position) {
+        if (position <= 0) {
+            return 0;
+        }
+        int newline = input.lastIndexOf('\n', position - 1);
+        return newline + 1;
+    }
+
+    private int lineEnd(int position) {
+        if (position >= input.length()) {
+            return input.length();
+        }
+        int newline = input.indexOf('\n', position);
+        return newline < 0 ? input.length() : newline + 1;
+    }
+}
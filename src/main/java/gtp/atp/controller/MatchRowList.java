@@ -0,0 +1,136 @@
+package gtp.atp.controller;
+
+import gtp.atp.model.MatchResult;
+import gtp.atp.model.MatchRow;
+import gtp.atp.model.MatchSpans;
+import javafx.collections.ObservableListBase;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A read-only observable list of match rows that stores only offsets and materializes rows on demand.
+ * Each match costs twelve bytes, its packed span plus its line number, and a {@link MatchRow} with its
+ * text is only created when a virtualized control such as a {@code TableView} asks for a visible row.
+ * Matches beyond the memory budget are counted but not kept.
+ *
+ * <p>Matches are appended in input order, in batches. Once a list has been handed to a control or
+ * otherwise published, it must only be changed on the JavaFX Application Thread. A list not yet
+ * published may be filled on any one thread, so a background task can build it, line numbers
+ * included, and hand the finished list to the JavaFX Application Thread.
+ */
+public class MatchRowList extends ObservableListBase<MatchRow> {
+    /**
+     * Bytes of list storage used per retained match.
+     */
+    public static final int BYTES_PER_MATCH = Long.BYTES + Integer.BYTES;
+
+    private final MatchSpans spans;
+    private final String patternUsed;
+    private final int maxRows;
+    private int[] lineNumbers = new int[16];
+    private long totalMatches;
+
+    // Line counting resumes from the previous match start, so numbering all matches is a single pass
+    private int countedTo;
+    private int countedLine = 1;
+
+    // TableView asks for the same row once per column, so keep the last row handed out
+    private MatchRow lastRow;
+
+    /**
+     * Constructs an empty list over the given input.
+     *
+     * @param source the text the matches were found in (cannot be null)
+     * @param patternUsed the pattern that produced the matches
+     * @param memoryBudgetBytes the most memory the list may use for match storage (must be positive)
+     * @throws NullPointerException if source is null
+     * @throws IllegalArgumentException if memoryBudgetBytes is not positive
+     */
+    public MatchRowList(CharSequence source, String patternUsed, long memoryBudgetBytes) {
+        if (memoryBudgetBytes <= 0) {
+            throw new IllegalArgumentException("memoryBudgetBytes must be greater than 0");
+        }
+        this.spans = new MatchSpans(Objects.requireNonNull(source, "Source sequence cannot be null"));
+        this.patternUsed = patternUsed;
+        this.maxRows = (int) Math.min(Integer.MAX_VALUE - 8, memoryBudgetBytes / BYTES_PER_MATCH);
+    }
+
+    /**
+     * Appends a batch of matches, keeping as many as the memory budget allows. Must be called on the
+     * JavaFX Application Thread once the list is published.
+     *
+     * @param batch the matches to append, in input order after all earlier ones (cannot be null)
+     */
+    public void addAll(MatchSpans batch) {
+        int from = spans.size();
+        int keep = Math.min(batch.size(), maxRows - from);
+        totalMatches += batch.size();
+        if (keep <= 0) {
+            return;
+        }
+
+        if (from + keep > lineNumbers.length) {
+            lineNumbers = Arrays.copyOf(lineNumbers, Math.max(from + keep, lineNumbers.length + (lineNumbers.length >> 1)));
+        }
+        CharSequence source = spans.getSource();
+        for (int i = 0; i < keep; i++) {
+            int start = batch.start(i);
+            for (; countedTo < start; countedTo++) {
+                if (source.charAt(countedTo) == '\n') {
+                    countedLine++;
+                }
+            }
+            lineNumbers[from + i] = countedLine;
+            spans.add(start, batch.end(i));
+        }
+
+        beginChange();
+        nextAdd(from, from + keep);
+        endChange();
+    }
+
+    /**
+     * Gets the spans of the retained matches.
+     *
+     * @return the retained spans, pointing into the source
+     */
+    public MatchSpans getSpans() {
+        return spans;
+    }
+
+    /**
+     * Gets the number of matches appended, including those dropped for exceeding the memory budget.
+     *
+     * @return the total match count
+     */
+    public long getTotalMatches() {
+        return totalMatches;
+    }
+
+    /**
+     * Checks whether matches were dropped for exceeding the memory budget.
+     *
+     * @return true if fewer matches are listed than were appended
+     */
+    public boolean isTruncated() {
+        return totalMatches > spans.size();
+    }
+
+    @Override
+    public MatchRow get(int index) {
+        MatchRow row = lastRow;
+        if (row != null && row.number() == index + 1) {
+            return row;
+        }
+        MatchResult match = spans.toMatchResult(index, patternUsed);
+        row = new MatchRow(index + 1, lineNumbers[index], match);
+        lastRow = row;
+        return row;
+    }
+
+    @Override
+    public int size() {
+        return spans.size();
+    }
+}
@@ -2,12 +2,14 @@ package gtp.atp.controller;
 
 import gtp.atp.model.RegexHistory;
 import gtp.atp.service.RegexHistoryManager;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
@@ -32,26 +34,42 @@ import java.util.logging.Logger;
 public class RegexHistoryController {
     private static final Logger LOGGER = Logger.getLogger(RegexHistoryController.class.getName());
 
+    /**
+     * Most recent matches shown while filtering, so each keystroke stays cheap however large the history.
+     * The user is told when more patterns matched.
+     */
+    private static final int SEARCH_RESULT_LIMIT = 1000;
+
     @FXML private TableView<RegexHistory> historyTable;
     @FXML private TableColumn<RegexHistory, String> patternColumn;
     @FXML private TableColumn<RegexHistory, Number> usageCountColumn;
     @FXML private TableColumn<RegexHistory, String> lastUsedColumn;
     @FXML private TableColumn<RegexHistory, String> actionsColumn;
     @FXML private TextField searchField;
+    @FXML private Label resultLimitLabel;
 
     private final ObservableList<RegexHistory> historyData = FXCollections.observableArrayList();
     private RegexHistoryManager historyManager;
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm");
     private Consumer<String> patternConsumer;
+    private final RegexHistoryManager.EvictionListener evictionListener =
+            (history, cause) -> Platform.runLater(() -> historyData.remove(history));
 
     /**
      * Sets the history manager and loads initial history data.
+     * Entries the manager evicts are removed from the table as they go.
      *
      * @param historyManager the history manager instance to use
      */
     public void setHistoryManager(RegexHistoryManager historyManager) {
         LOGGER.fine("Setting history manager and loading initial data");
+        if (this.historyManager != null) {
+            this.historyManager.removeEvictionListener(evictionListener);
+        }
         this.historyManager = historyManager;
+        if (historyManager != null) {
+            historyManager.addEvictionListener(evictionListener);
+        }
         loadHistoryData();
     }
 
@@ -147,6 +165,7 @@ public class RegexHistoryController {
             try {
                 List<RegexHistory> historyList = historyManager.getRegexHistoryList();
                 historyData.setAll(historyList);
+                resultLimitLabel.setText("");
                 LOGGER.info("Loaded " + historyList.size() + " history entries");
             } catch (Exception e) {
                 LOGGER.log(Level.SEVERE, "Failed to load history data", e);
@@ -163,9 +182,17 @@ public class RegexHistoryController {
         } else {
             LOGGER.fine("Filtering history with search term: " + searchTerm);
             try {
-                List<RegexHistory> filtered = historyManager.searchPatterns(searchTerm);
+                // One more than shown, to tell whether the list was cut short
+                List<RegexHistory> filtered = historyManager.searchPatterns(searchTerm, SEARCH_RESULT_LIMIT + 1);
+                boolean truncated = filtered.size() > SEARCH_RESULT_LIMIT;
+                if (truncated) {
+                    filtered = filtered.subList(0, SEARCH_RESULT_LIMIT);
+                }
                 historyData.setAll(filtered);
-                LOGGER.fine("Filtered to " + filtered.size() + " matching entries");
+                resultLimitLabel.setText(truncated
+                        ? "Showing the " + SEARCH_RESULT_LIMIT + " most recent matches, refine the search to see others"
+                        : "");
+                LOGGER.fine("Filtered to " + filtered.size() + " matching entries" + (truncated ? " (truncated)" : ""));
             } catch (Exception e) {
                 LOGGER.log(Level.SEVERE, "Failed to filter history", e);
             }
@@ -189,6 +216,9 @@ public class RegexHistoryController {
     @FXML
     private void handleBack(ActionEvent event) {
         LOGGER.fine("Handling back button action");
+        if (historyManager != null) {
+            historyManager.removeEvictionListener(evictionListener);
+        }
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/atp/view/mainview.fxml"));
             Parent mainView = loader.load();
@@ -0,0 +1,36 @@
+package gtp.atp.controller;
+
+import gtp.atp.model.ExecutionBudget;
+import gtp.atp.service.RegexProcessor;
+
+import java.util.Objects;
+
+/**
+ * Replaces all matches of a pattern on a background thread. The task's value is the rewritten text.
+ */
+public class RegexReplaceTask extends RegexTask<String> {
+    private final String replacement;
+
+    /**
+     * Constructs a replace task.
+     *
+     * @param processor the processor whose pattern to replace (cannot be null)
+     * @param input the text to rewrite (cannot be null)
+     * @param replacement the replacement string, which may refer to captured groups (cannot be null)
+     * @param budget the limits the replacement must stay within (cannot be null)
+     * @throws NullPointerException if any parameter is null
+     */
+    public RegexReplaceTask(RegexProcessor processor, String input, String replacement, ExecutionBudget budget) {
+        super(processor, input, budget);
+        this.replacement = Objects.requireNonNull(replacement, "Replacement string cannot be null");
+    }
+
+    @Override
+    protected String call() {
+        int length = input.length();
+        updateProgress(0, length);
+        String result = processor.findAndReplace(input, replacement, budget(), progressListener());
+        updateProgress(length, length);
+        return result;
+    }
+}
@@ -0,0 +1,83 @@
+package gtp.atp.controller;
+
+import gtp.atp.model.ExecutionBudget;
+import gtp.atp.model.MatchSpans;
+import gtp.atp.service.RegexProcessor;
+import javafx.application.Platform;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Finds all matches of a pattern on a background thread, publishing them to the FX thread in batches
+ * as they are found. Batches carry only the offsets of their matches into the input, so no matched
+ * text is copied while searching. A batch is sent once it holds {@link #BATCH_SIZE} matches or
+ * {@link #BATCH_INTERVAL_MILLIS} have passed since the last one, so the UI fills in steadily without
+ * being flooded with one update per match. The task's value is the total number of matches.
+ */
+public class RegexSearchTask extends RegexTask<Integer> {
+    /**
+     * Maximum number of matches published in one batch.
+     */
+    public static final int BATCH_SIZE = 1000;
+
+    /**
+     * Maximum time, in milliseconds, a found match waits before being published.
+     */
+    public static final long BATCH_INTERVAL_MILLIS = 100;
+
+    private final Consumer<MatchSpans> batchConsumer;
+    private MatchSpans batch;
+    private long lastPublished;
+
+    /**
+     * Constructs a search task.
+     *
+     * @param processor the processor whose pattern to search for (cannot be null)
+     * @param input the text to search (cannot be null)
+     * @param budget the limits the search must stay within (cannot be null)
+     * @param batchConsumer receives each batch of match spans on the FX thread (cannot be null)
+     * @throws NullPointerException if any parameter is null
+     */
+    public RegexSearchTask(RegexProcessor processor, String input, ExecutionBudget budget,
+                           Consumer<MatchSpans> batchConsumer) {
+        super(processor, input, budget);
+        this.batchConsumer = Objects.requireNonNull(batchConsumer, "Batch consumer cannot be null");
+    }
+
+    @Override
+    protected Integer call() {
+        int length = input.length();
+        updateProgress(0, length);
+
+        batch = new MatchSpans(input);
+        lastPublished = System.nanoTime();
+        int count = processor.forEachSpanAndRecord(input, budget(), progressListener(), this::collect);
+        publish(batch);
+
+        updateProgress(length, length);
+        return count;
+    }
+
+    private void collect(int start, int end) {
+        batch.add(start, end);
+        if (batch.size() >= BATCH_SIZE || System.nanoTime() - lastPublished >= BATCH_INTERVAL_MILLIS * 1_000_000) {
+            publish(batch);
+            batch = new MatchSpans(input);
+            lastPublished = System.nanoTime();
+            updateProgress(end, input.length());
+        }
+    }
+
+    private void publish(MatchSpans batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Platform.runLater(() -> {
+            // Batches queued before a cancellation must not reach the UI after it
+            if (!isCancelled()) {
+                batchConsumer.accept(batch);
+            }
+        });
+    }
+}
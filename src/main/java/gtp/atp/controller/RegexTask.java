@@ -0,0 +1,77 @@
+package gtp.atp.controller;
+
+import gtp.atp.exception.RegexBudgetExceededException;
+import gtp.atp.model.ExecutionBudget;
+import gtp.atp.service.RegexProcessor;
+import gtp.atp.util.BudgetedCharSequence;
+import javafx.concurrent.Task;
+
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * Base class for regex operations that run off the JavaFX Application Thread.
+ * Subclasses run the processor's budgeted operations with the task's budget and progress listener,
+ * or read the input through {@link #budgetedInput()}. Either way the input is read through a
+ * {@link BudgetedCharSequence}, which feeds the task's progress from the position the matcher is
+ * scanning and aborts the match when the budget runs out or the task is cancelled, since cancelling
+ * interrupts the worker thread.
+ *
+ * @param <V> the type of the task's result
+ */
+abstract class RegexTask<V> extends Task<V> {
+    protected final RegexProcessor processor;
+    protected final String input;
+    private final ExecutionBudget budget;
+
+    /**
+     * Constructs a task over the given input.
+     *
+     * @param processor the processor whose pattern to run (cannot be null)
+     * @param input the text to process (cannot be null)
+     * @param budget the limits the operation must stay within (cannot be null)
+     * @throws NullPointerException if any parameter is null
+     */
+    protected RegexTask(RegexProcessor processor, String input, ExecutionBudget budget) {
+        this.processor = Objects.requireNonNull(processor, "Processor cannot be null");
+        this.input = Objects.requireNonNull(input, "Input string cannot be null");
+        this.budget = Objects.requireNonNull(budget, "Budget cannot be null");
+    }
+
+    /**
+     * Creates the view of the input the matcher should read, starting the budget clock.
+     *
+     * @return the budgeted input, reporting progress to this task
+     */
+    protected BudgetedCharSequence budgetedInput() {
+        return new BudgetedCharSequence(input, budget, progressListener());
+    }
+
+    /**
+     * Gets the limits the operation must stay within.
+     *
+     * @return the task's budget
+     */
+    protected ExecutionBudget budget() {
+        return budget;
+    }
+
+    /**
+     * Creates a listener that reports the index the matcher is reading as this task's progress.
+     *
+     * @return the progress listener
+     */
+    protected IntConsumer progressListener() {
+        int length = input.length();
+        return index -> updateProgress(index, length);
+    }
+
+    /**
+     * Gets the exception that stopped the task if it was a budget breach.
+     *
+     * @return the budget exception, or null if the task did not fail that way
+     */
+    public RegexBudgetExceededException getBudgetException() {
+        return getException() instanceof RegexBudgetExceededException e ? e : null;
+    }
+}
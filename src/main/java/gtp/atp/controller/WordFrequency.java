@@ -1,22 +1,39 @@
 package gtp.atp.controller;
 
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.LongProperty;
+import javafx.beans.property.SimpleLongProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 
+/**
+ * A row of a word frequency table. The JavaFX properties are created on first access,
+ * so rows that are never bound cost no more than their word and count.
+ */
 public class WordFrequency {
-    private final StringProperty word;
-    private final IntegerProperty count;
+    private final String wordValue;
+    private final long countValue;
+    private StringProperty word;
+    private LongProperty count;
 
-    public WordFrequency(String word, int count) {
-        this.word = new SimpleStringProperty(word);
-        this.count = new SimpleIntegerProperty(count);
+    public WordFrequency(String word, long count) {
+        this.wordValue = word;
+        this.countValue = count;
     }
 
-    public StringProperty wordProperty() { return word; }
-    public IntegerProperty countProperty() { return count; }
+    public StringProperty wordProperty() {
+        if (word == null) {
+            word = new SimpleStringProperty(this, "word", wordValue);
+        }
+        return word;
+    }
+
+    public LongProperty countProperty() {
+        if (count == null) {
+            count = new SimpleLongProperty(this, "count", countValue);
+        }
+        return count;
+    }
 
-    public String getWord() { return word.get(); }
-    public int getCount() { return count.get(); }
+    public String getWord() { return word != null ? word.get() : wordValue; }
+    public long getCount() { return count != null ? count.get() : countValue; }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package gtp.atp.controller;
+
+import gtp.atp.util.WordCountTable;
+import javafx.collections.ObservableListBase;
+
+import java.util.Objects;
+
+/**
+ * A read-only observable list of word frequency rows backed by a {@link WordCountTable}.
+ * Rows are materialized on demand, so a virtualized control such as a {@code TableView} only
+ * creates a {@link WordFrequency} for each visible row instead of one per distinct word.
+ *
+ * <p>Rows are listed in entry order, the order in which words were first counted. The table
+ * must not change while the list is in use.
+ */
+public class WordFrequencyList extends ObservableListBase<WordFrequency> {
+    private final WordCountTable counts;
+
+    // TableView asks for the same row once per column, so keep the last row handed out
+    private int lastIndex = -1;
+    private WordFrequency lastRow;
+
+    /**
+     * Constructs a list over the given counts.
+     *
+     * @param counts the word counts to list (cannot be null)
+     * @throws NullPointerException if counts is null
+     */
+    public WordFrequencyList(WordCountTable counts) {
+        this.counts = Objects.requireNonNull(counts, "Word counts cannot be null");
+    }
+
+    @Override
+    public WordFrequency get(int index) {
+        if (index == lastIndex) {
+            return lastRow;
+        }
+        WordFrequency row = new WordFrequency(counts.wordAt(index), counts.countAt(index));
+        lastIndex = index;
+        lastRow = row;
+        return row;
+    }
+
+    @Override
+    public int size() {
+        return counts.size();
+    }
+}
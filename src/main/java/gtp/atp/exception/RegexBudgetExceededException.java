@@ -0,0 +1,56 @@
+package gtp.atp.exception;
+
+/**
+ * Exception thrown when a regular expression operation is aborted because it ran past its
+ * execution budget, typically due to catastrophic backtracking, or because its thread was interrupted.
+ * Unlike {@link InvalidRegexException} it is unchecked, since it is raised from inside the regex
+ * engine's reads of the input.
+ */
+public class RegexBudgetExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The limit that stopped the operation.
+     */
+    public enum Reason {
+        /** The operation ran past its deadline. */
+        TIMEOUT,
+        /** The operation read more input characters than allowed. */
+        CHAR_ACCESS_LIMIT,
+        /** The thread running the operation was interrupted. */
+        INTERRUPTED
+    }
+
+    private final Reason reason;
+    private final long charAccesses;
+
+    /**
+     * Constructs a new exception describing which limit was breached.
+     *
+     * @param reason the limit that stopped the operation
+     * @param charAccesses the number of input characters read before the operation stopped
+     */
+    public RegexBudgetExceededException(Reason reason, long charAccesses) {
+        super(String.format("Regex execution aborted (%s) after %d character reads", reason, charAccesses));
+        this.reason = reason;
+        this.charAccesses = charAccesses;
+    }
+
+    /**
+     * Gets the limit that stopped the operation.
+     *
+     * @return the reason for the abort
+     */
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * Gets the number of input characters read before the operation stopped.
+     *
+     * @return the character read count
+     */
+    public long getCharAccesses() {
+        return charAccesses;
+    }
+}
@@ -0,0 +1,41 @@
+package gtp.atp.model;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The outcome of processing one file in a batch job.
+ *
+ * @param source the input file
+ * @param target the output file, or null if processing failed
+ * @param bytesRead the size of the input file in bytes
+ * @param linesRead number of lines read from the input
+ * @param linesWritten number of lines written to the output
+ * @param matchCounts number of matches found by each operation, in operation order
+ * @param elapsedNanos time spent on this file
+ * @param error description of the failure, or null if the file was processed successfully
+ */
+public record BatchFileResult(Path source, Path target, long bytesRead, long linesRead, long linesWritten,
+                              List<Long> matchCounts, long elapsedNanos, String error) {
+
+    /**
+     * Checks whether the file was processed without error.
+     *
+     * @return true if processing succeeded
+     */
+    public boolean succeeded() {
+        return error == null;
+    }
+
+    /**
+     * Creates a result for a file that could not be processed.
+     *
+     * @param source the input file
+     * @param elapsedNanos time spent before the failure
+     * @param error description of the failure
+     * @return a failed result
+     */
+    public static BatchFileResult failed(Path source, long elapsedNanos, String error) {
+        return new BatchFileResult(source, null, 0, 0, 0, List.of(), elapsedNanos, error);
+    }
+}
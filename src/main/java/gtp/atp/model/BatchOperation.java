@@ -0,0 +1,93 @@
+package gtp.atp.model;
+
+import java.util.Objects;
+
+/**
+ * A single regular expression step applied to every line of every file in a batch job.
+ * Operations run in order, each one feeding the lines it produces to the next:
+ * <ul>
+ *   <li>{@link Type#SEARCH} keeps only lines containing a match</li>
+ *   <li>{@link Type#REPLACE} replaces all matches in the line</li>
+ *   <li>{@link Type#COUNT} counts matches and passes the line through unchanged</li>
+ *   <li>{@link Type#EXTRACT} replaces the line with one line per match</li>
+ * </ul>
+ *
+ * @param type the kind of operation
+ * @param regex the regular expression pattern
+ * @param replacement the replacement string, only used by {@link Type#REPLACE}
+ */
+public record BatchOperation(Type type, String regex, String replacement) {
+
+    /**
+     * The kinds of operation a batch job can apply.
+     */
+    public enum Type {
+        SEARCH, REPLACE, COUNT, EXTRACT
+    }
+
+    /**
+     * Constructs a batch operation.
+     *
+     * @throws NullPointerException if type or regex is null, or replacement is null for a replace operation
+     * @throws IllegalArgumentException if regex is empty
+     */
+    public BatchOperation {
+        Objects.requireNonNull(type, "Operation type cannot be null");
+        Objects.requireNonNull(regex, "Regex pattern cannot be null");
+        if (regex.trim().isEmpty()) {
+            throw new IllegalArgumentException("Regex pattern cannot be empty");
+        }
+        if (type == Type.REPLACE) {
+            Objects.requireNonNull(replacement, "Replacement string cannot be null");
+        }
+    }
+
+    /**
+     * Creates an operation keeping only lines that contain a match.
+     *
+     * @param regex the regular expression pattern (cannot be null or empty)
+     * @return the search operation
+     * @throws NullPointerException if regex is null
+     * @throws IllegalArgumentException if regex is empty
+     */
+    public static BatchOperation search(String regex) {
+        return new BatchOperation(Type.SEARCH, regex, null);
+    }
+
+    /**
+     * Creates an operation replacing all matches in each line.
+     *
+     * @param regex the regular expression pattern (cannot be null or empty)
+     * @param replacement the replacement string, which may refer to captured groups (cannot be null)
+     * @return the replace operation
+     * @throws NullPointerException if regex or replacement is null
+     * @throws IllegalArgumentException if regex is empty
+     */
+    public static BatchOperation replace(String regex, String replacement) {
+        return new BatchOperation(Type.REPLACE, regex, replacement);
+    }
+
+    /**
+     * Creates an operation counting matches and passing each line through unchanged.
+     *
+     * @param regex the regular expression pattern (cannot be null or empty)
+     * @return the count operation
+     * @throws NullPointerException if regex is null
+     * @throws IllegalArgumentException if regex is empty
+     */
+    public static BatchOperation count(String regex) {
+        return new BatchOperation(Type.COUNT, regex, null);
+    }
+
+    /**
+     * Creates an operation replacing each line with one line per match.
+     *
+     * @param regex the regular expression pattern (cannot be null or empty)
+     * @return the extract operation
+     * @throws NullPointerException if regex is null
+     * @throws IllegalArgumentException if regex is empty
+     */
+    public static BatchOperation extract(String regex) {
+        return new BatchOperation(Type.EXTRACT, regex, null);
+    }
+}
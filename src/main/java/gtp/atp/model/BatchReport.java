@@ -0,0 +1,66 @@
+package gtp.atp.model;
+
+import java.util.List;
+
+/**
+ * Summary of a batch job, with one result per input file and overall throughput figures.
+ *
+ * @param files per-file results in input order
+ * @param elapsedNanos wall-clock time of the whole job
+ */
+public record BatchReport(List<BatchFileResult> files, long elapsedNanos) {
+
+    /**
+     * Constructs a batch report, copying the per-file results.
+     *
+     * @throws NullPointerException if files is null or contains a null result
+     */
+    public BatchReport {
+        files = List.copyOf(files);
+    }
+
+    /**
+     * Gets the total number of input bytes processed successfully.
+     *
+     * @return the total byte count
+     */
+    public long totalBytes() {
+        return files.stream().mapToLong(BatchFileResult::bytesRead).sum();
+    }
+
+    /**
+     * Gets the number of files processed without error.
+     *
+     * @return the succeeded file count
+     */
+    public long succeededCount() {
+        return files.stream().filter(BatchFileResult::succeeded).count();
+    }
+
+    /**
+     * Gets the number of files whose processing failed.
+     *
+     * @return the failed file count
+     */
+    public long failedCount() {
+        return files.size() - succeededCount();
+    }
+
+    /**
+     * Gets the job throughput in input bytes per second of wall-clock time.
+     *
+     * @return the throughput, or 0 if no time elapsed
+     */
+    public double bytesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : totalBytes() * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    /**
+     * Gets the job throughput in files per second of wall-clock time.
+     *
+     * @return the throughput, or 0 if no time elapsed
+     */
+    public double filesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : files.size() * 1_000_000_000.0 / elapsedNanos;
+    }
+}
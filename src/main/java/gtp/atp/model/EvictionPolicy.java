@@ -0,0 +1,75 @@
+package gtp.atp.model;
+
+import java.time.Duration;
+
+/**
+ * Decides which regex history entries a bounded history drops.
+ * When the history is over capacity, the entry ranked lowest by the policy's order is evicted;
+ * a policy with a time to live also expires entries that have not been used for that long,
+ * whether or not the history is full.
+ *
+ * @param order which entry goes first when the history is over capacity
+ * @param timeToLive how long an entry may go unused before it expires, or null if entries never expire
+ */
+public record EvictionPolicy(Order order, Duration timeToLive) {
+
+    /**
+     * The ranking used to pick the entry evicted when the history is over capacity.
+     */
+    public enum Order {
+        /** The entry used least recently, by timestamp. */
+        LEAST_RECENTLY_USED,
+        /** The entry with the lowest usage count. */
+        LEAST_FREQUENTLY_USED
+    }
+
+    public EvictionPolicy {
+        if (order == null) {
+            throw new IllegalArgumentException("order cannot be null");
+        }
+        if (timeToLive != null && (timeToLive.isNegative() || timeToLive.isZero())) {
+            throw new IllegalArgumentException("timeToLive must be greater than 0");
+        }
+    }
+
+    /**
+     * Creates a policy evicting the least recently used entry.
+     *
+     * @return the policy
+     */
+    public static EvictionPolicy lru() {
+        return new EvictionPolicy(Order.LEAST_RECENTLY_USED, null);
+    }
+
+    /**
+     * Creates a policy evicting the least frequently used entry.
+     *
+     * @return the policy
+     */
+    public static EvictionPolicy lfu() {
+        return new EvictionPolicy(Order.LEAST_FREQUENTLY_USED, null);
+    }
+
+    /**
+     * Creates a policy expiring entries unused for the given time, and evicting the least recently
+     * used entry when the history is over capacity.
+     *
+     * @param timeToLive how long an entry may go unused (cannot be null)
+     * @return the policy
+     */
+    public static EvictionPolicy ttl(Duration timeToLive) {
+        if (timeToLive == null) {
+            throw new IllegalArgumentException("timeToLive cannot be null");
+        }
+        return new EvictionPolicy(Order.LEAST_RECENTLY_USED, timeToLive);
+    }
+
+    /**
+     * Checks whether entries expire.
+     *
+     * @return true if {@link #timeToLive()} is set
+     */
+    public boolean expires() {
+        return timeToLive != null;
+    }
+}
@@ -0,0 +1,58 @@
+package gtp.atp.model;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Limits on how long a single regex operation may run.
+ * The character access limit bounds the work done regardless of wall-clock speed, while the
+ * timeout bounds latency; an operation breaching either is aborted.
+ *
+ * @param timeout the maximum duration of the operation, or null for no deadline
+ * @param maxCharAccesses the maximum number of input characters the regex engine may read
+ */
+public record ExecutionBudget(Duration timeout, long maxCharAccesses) {
+
+    /**
+     * A budget that never aborts an operation, except on thread interruption.
+     */
+    public static final ExecutionBudget UNLIMITED = new ExecutionBudget(null, Long.MAX_VALUE);
+
+    /**
+     * Validates the limits of a budget.
+     *
+     * @throws IllegalArgumentException if timeout is zero or negative, or maxCharAccesses is not positive
+     */
+    public ExecutionBudget {
+        if (timeout != null && (timeout.isNegative() || timeout.isZero())) {
+            throw new IllegalArgumentException("timeout must be greater than 0");
+        }
+        if (maxCharAccesses <= 0) {
+            throw new IllegalArgumentException("maxCharAccesses must be greater than 0");
+        }
+    }
+
+    /**
+     * Creates a budget limited only by time.
+     *
+     * @param timeout the maximum duration of the operation (cannot be null)
+     * @return the budget
+     * @throws NullPointerException if timeout is null
+     * @throws IllegalArgumentException if timeout is zero or negative
+     */
+    public static ExecutionBudget ofTimeout(Duration timeout) {
+        Objects.requireNonNull(timeout, "Timeout cannot be null");
+        return new ExecutionBudget(timeout, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a budget limited only by the number of characters read.
+     *
+     * @param maxCharAccesses the maximum number of input characters the regex engine may read
+     * @return the budget
+     * @throws IllegalArgumentException if maxCharAccesses is not positive
+     */
+    public static ExecutionBudget ofCharAccesses(long maxCharAccesses) {
+        return new ExecutionBudget(null, maxCharAccesses);
+    }
+}
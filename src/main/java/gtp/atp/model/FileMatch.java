@@ -0,0 +1,14 @@
+package gtp.atp.model;
+
+/**
+ * A regular expression match found in a file, located by both its UTF-8 byte offsets
+ * and its UTF-16 character offsets from the start of the file.
+ *
+ * @param matchedText the text that was matched
+ * @param byteStart the starting byte offset (inclusive)
+ * @param byteEnd the ending byte offset (exclusive)
+ * @param charStart the starting character offset (inclusive)
+ * @param charEnd the ending character offset (exclusive)
+ */
+public record FileMatch(String matchedText, long byteStart, long byteEnd, long charStart, long charEnd) {
+}
@@ -0,0 +1,23 @@
+package gtp.atp.model;
+
+import java.nio.file.Path;
+
+/**
+ * The outcome of rewriting one file in a multi-file replace.
+ *
+ * @param source the file that was read
+ * @param target the file that was written, or null if processing failed before it was written
+ * @param replacements number of matches replaced
+ * @param error description of the failure, or null if the file was rewritten successfully
+ */
+public record FileReplaceResult(Path source, Path target, long replacements, String error) {
+
+    /**
+     * Checks whether the file was rewritten without error.
+     *
+     * @return true if processing succeeded
+     */
+    public boolean succeeded() {
+        return error == null;
+    }
+}
@@ -0,0 +1,23 @@
+package gtp.atp.model;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The matches found in one file of a multi-file search.
+ *
+ * @param file the file that was searched
+ * @param matches the matches in file order, with offsets relative to the start of the file
+ * @param error description of the failure, or null if the file was searched successfully
+ */
+public record FileSearchResult(Path file, List<MatchResult> matches, String error) {
+
+    /**
+     * Checks whether the file was searched without error.
+     *
+     * @return true if processing succeeded
+     */
+    public boolean succeeded() {
+        return error == null;
+    }
+}
@@ -8,9 +8,13 @@ import java.util.Objects;
 /**
  * Represents the result of a pattern matching operation, containing information about
  * the matched text, its location in the input, and the pattern used for matching.
+ * A result may also be created over the original input with {@link #ofSpan}. If the input is a {@link String}, the
+ * matched text is only copied out of it the first time it is requested, and the result keeps the
+ * whole input reachable until then; any other sequence may change later, so its text is copied at once.
  */
 public class MatchResult {
     private String matchedText;
+    private String source;
     private int startIndex;
     private int endIndex;
     private String patternUsed;
@@ -32,11 +36,49 @@ public class MatchResult {
     }
 
     /**
-     * Returns the matched text.
+     * Creates a MatchResult that refers to its text by offsets into the original input.
+     * For a {@link String} input, the matched text is materialized on the first call to
+     * {@link #getMatchedText()}; for any other sequence, which may be mutable, it is copied immediately.
+     *
+     * @param source the input sequence the match was found in (cannot be null)
+     * @param startIndex the starting index (inclusive) of the matched text in the input
+     * @param endIndex the ending index (exclusive) of the matched text in the input
+     * @param patternUsed the pattern that was used to find this match
+     * @return the match result
+     * @throws NullPointerException if source is null
+     * @throws IndexOutOfBoundsException if the indexes do not describe a range of the source
+     */
+    public static MatchResult ofSpan(CharSequence source, int startIndex, int endIndex, String patternUsed) {
+        Objects.requireNonNull(source, "Source sequence cannot be null");
+        Objects.checkFromToIndex(startIndex, endIndex, source.length());
+        return new MatchResult(source, startIndex, endIndex, patternUsed);
+    }
+
+    /**
+     * Private, and reached only through {@link #ofSpan}, since a String source would otherwise
+     * bind to the public constructor taking the matched text.
+     */
+    private MatchResult(CharSequence source, int startIndex, int endIndex, String patternUsed) {
+        if (source instanceof String string) {
+            this.source = string;
+        } else {
+            this.matchedText = source.subSequence(startIndex, endIndex).toString();
+        }
+        this.startIndex = startIndex;
+        this.endIndex = endIndex;
+        this.patternUsed = patternUsed;
+    }
+
+    /**
+     * Returns the matched text, copying it out of the original input if it has not been materialized yet.
      *
      * @return the text that was matched
      */
     public String getMatchedText() {
+        if (matchedText == null && source != null) {
+            matchedText = source.substring(startIndex, endIndex);
+            source = null;
+        }
         return matchedText;
     }
 
@@ -47,6 +89,7 @@ public class MatchResult {
      */
     public void setMatchedText(String matchedText) {
         this.matchedText = matchedText;
+        this.source = null;
     }
 
     /**
@@ -88,7 +131,7 @@ public class MatchResult {
      * @throws IllegalArgumentException if endIndex is less than startIndex
      */
     public void setEndIndex(int endIndex) throws IndexOutOfBoundsException {
-        if (endIndex > matchedText.length()) {
+        if (endIndex > getMatchedText().length()) {
             throw new IndexOutOfBoundsException("End index out of bounds");
         }
 
@@ -128,7 +171,7 @@ public class MatchResult {
     @Override
     public String toString() {
         return String.format(
-                "Matched '%s' at [%d-%d] using pattern: %s", matchedText, startIndex, endIndex, patternUsed
+                "Matched '%s' at [%d-%d] using pattern: %s", getMatchedText(), startIndex, endIndex, patternUsed
         );
     }
 
@@ -153,7 +196,7 @@ public class MatchResult {
 
         return startIndex == other.startIndex
                 && endIndex == other.endIndex
-                && Objects.equals(matchedText, other.matchedText)
+                && Objects.equals(getMatchedText(), other.getMatchedText())
                 && Objects.equals(patternUsed, other.patternUsed);
     }
 
@@ -164,6 +207,6 @@ public class MatchResult {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(matchedText, startIndex, endIndex, patternUsed);
+        return Objects.hash(getMatchedText(), startIndex, endIndex, patternUsed);
     }
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package gtp.atp.model;
+
+/**
+ * One row of a match result table: a match together with its position in the result set
+ * and the line of the input it starts on.
+ *
+ * @param number the 1-based position of the match in the result set
+ * @param lineNumber the 1-based line of the input on which the match starts
+ * @param match the match, whose text is copied out of the input only when first requested
+ */
+public record MatchRow(int number, int lineNumber, MatchResult match) {
+}
@@ -0,0 +1,141 @@
+package gtp.atp.model;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A compact, append-only collection of match spans pointing into an original input sequence.
+ * Each span is packed into a single {@code long} holding its start and end offsets, so recording
+ * a match allocates nothing beyond occasional growth of the backing array. The matched text is
+ * only materialized when it is explicitly requested.
+ */
+public final class MatchSpans {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final CharSequence source;
+    private long[] spans;
+    private int size;
+
+    /**
+     * Constructs an empty span collection over the given source sequence.
+     *
+     * @param source the sequence the spans point into (cannot be null)
+     * @throws NullPointerException if source is null
+     */
+    public MatchSpans(CharSequence source) {
+        this.source = Objects.requireNonNull(source, "Source sequence cannot be null");
+        this.spans = new long[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Records a span.
+     *
+     * @param start the starting offset (inclusive) in the source
+     * @param end the ending offset (exclusive) in the source
+     * @throws IndexOutOfBoundsException if the offsets do not describe a range of the source
+     */
+    public void add(int start, int end) {
+        Objects.checkFromToIndex(start, end, source.length());
+        if (size == spans.length) {
+            spans = Arrays.copyOf(spans, spans.length + (spans.length >> 1));
+        }
+        spans[size++] = ((long) start << 32) | (end & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Gets the source sequence the spans point into.
+     *
+     * @return the source sequence
+     */
+    public CharSequence getSource() {
+        return source;
+    }
+
+    /**
+     * Gets the number of recorded spans.
+     *
+     * @return the span count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether no spans have been recorded.
+     *
+     * @return true if the collection is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the starting offset of a span.
+     *
+     * @param index the span index
+     * @return the starting offset (inclusive) in the source
+     * @throws IndexOutOfBoundsException if index is out of range
+     */
+    public int start(int index) {
+        return (int) (spans[Objects.checkIndex(index, size)] >>> 32);
+    }
+
+    /**
+     * Gets the ending offset of a span.
+     *
+     * @param index the span index
+     * @return the ending offset (exclusive) in the source
+     * @throws IndexOutOfBoundsException if index is out of range
+     */
+    public int end(int index) {
+        return (int) spans[Objects.checkIndex(index, size)];
+    }
+
+    /**
+     * Gets a read-only view of a span's text that shares the source characters instead of copying them.
+     *
+     * @param index the span index
+     * @return a character view over the matched region
+     * @throws IndexOutOfBoundsException if index is out of range
+     */
+    public CharSequence view(int index) {
+        return CharBuffer.wrap(source, start(index), end(index));
+    }
+
+    /**
+     * Materializes the text of a span as a new string.
+     *
+     * @param index the span index
+     * @return the matched text
+     * @throws IndexOutOfBoundsException if index is out of range
+     */
+    public String text(int index) {
+        return source.subSequence(start(index), end(index)).toString();
+    }
+
+    /**
+     * Writes the text of a span directly to an output without materializing a string.
+     *
+     * @param index the span index
+     * @param out the destination to append to
+     * @throws IOException if the destination fails
+     * @throws IndexOutOfBoundsException if index is out of range
+     */
+    public void appendTo(int index, Appendable out) throws IOException {
+        out.append(source, start(index), end(index));
+    }
+
+    /**
+     * Converts a span into a {@link MatchResult}, whose text is materialized lazily if the source is a {@link String}.
+     *
+     * @param index the span index
+     * @param patternUsed the pattern that produced the span
+     * @return a match result for the span
+     * @throws IndexOutOfBoundsException if index is out of range
+     */
+    public MatchResult toMatchResult(int index, String patternUsed) {
+        return MatchResult.ofSpan(source, start(index), end(index), patternUsed);
+    }
+}
@@ -0,0 +1,12 @@
+package gtp.atp.model;
+
+/**
+ * A match reported by a multi-pattern scan, identifying which of the patterns matched and where.
+ *
+ * @param patternIndex the index of the matching pattern in the list the matcher was built from
+ * @param pattern the matching pattern
+ * @param start the starting index (inclusive) of the match in the input
+ * @param end the ending index (exclusive) of the match in the input
+ */
+public record MultiPatternMatch(int patternIndex, String pattern, int start, int end) {
+}
@@ -1,8 +1,12 @@
 package gtp.atp.model;
 
+import gtp.atp.util.FxPropertySync;
 import javafx.beans.property.*;
 import java.time.LocalDateTime;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Represents the usage history of a regular expression pattern, tracking:
@@ -11,11 +15,31 @@ import java.util.Objects;
  * - When it was last used
  *
  * This class uses JavaFX properties to enable easy binding with UI components.
+ *
+ * <p>Usage may be recorded from several threads at once. The getters read thread-safe fields that
+ * are updated without locking; the JavaFX properties mirror them and are brought up to date on
+ * the JavaFX application thread through {@link FxPropertySync}, so they may briefly lag behind.
+ * The properties are created on first access, so entries that are never shown cost no more than
+ * their fields.
  */
 public class RegexHistory {
-    private final StringProperty pattern = new SimpleStringProperty();
-    private final ObjectProperty<LocalDateTime> timestamp = new SimpleObjectProperty<>();
-    private final IntegerProperty usageCount = new SimpleIntegerProperty();
+    // Field updaters rather than atomic objects keep an entry to a single allocation
+    private static final AtomicLongFieldUpdater<RegexHistory> USAGE =
+            AtomicLongFieldUpdater.newUpdater(RegexHistory.class, "usage");
+    private static final AtomicReferenceFieldUpdater<RegexHistory, LocalDateTime> LAST_USED =
+            AtomicReferenceFieldUpdater.newUpdater(RegexHistory.class, LocalDateTime.class, "lastUsed");
+    private static final AtomicIntegerFieldUpdater<RegexHistory> SYNC_PENDING =
+            AtomicIntegerFieldUpdater.newUpdater(RegexHistory.class, "syncPending");
+
+    private StringProperty pattern;
+    private ObjectProperty<LocalDateTime> timestamp;
+    private IntegerProperty usageCount;
+    private volatile boolean bound;
+
+    private volatile String currentPattern;
+    private volatile LocalDateTime lastUsed;
+    private volatile long usage;
+    private volatile int syncPending;
 
     /**
      * Constructs a new RegexHistory with specified values.
@@ -36,9 +60,9 @@ public class RegexHistory {
             throw new IllegalArgumentException("timestamp cannot be null");
         }
 
-        this.pattern.set(pattern);
-        this.usageCount.set(usageCount);
-        this.timestamp.set(timestamp);
+        this.currentPattern = pattern;
+        this.usage = usageCount;
+        this.lastUsed = timestamp;
     }
 
     /**
@@ -58,6 +82,10 @@ public class RegexHistory {
      * @return the StringProperty for the regex pattern
      */
     public StringProperty patternProperty() {
+        if (pattern == null) {
+            bind();
+            pattern = new SimpleStringProperty(this, "pattern", getPattern());
+        }
         return pattern;
     }
 
@@ -66,6 +94,10 @@ public class RegexHistory {
      * @return the ObjectProperty for the last usage timestamp
      */
     public ObjectProperty<LocalDateTime> timestampProperty() {
+        if (timestamp == null) {
+            bind();
+            timestamp = new SimpleObjectProperty<>(this, "timestamp", getTimestamp());
+        }
         return timestamp;
     }
 
@@ -74,16 +106,28 @@ public class RegexHistory {
      * @return the IntegerProperty for the usage count
      */
     public IntegerProperty usageCountProperty() {
+        if (usageCount == null) {
+            bind();
+            usageCount = new SimpleIntegerProperty(this, "usageCount", getUsageCount());
+        }
         return usageCount;
     }
 
+    /**
+     * Marks the entry as having properties before the first one reads its initial value, so a change
+     * made concurrently is either included in that value or followed by a refresh.
+     */
+    private void bind() {
+        bound = true;
+    }
+
     // Regular getters
     /**
      * Gets the regular expression pattern.
      * @return the pattern string
      */
     public String getPattern() {
-        return pattern.get();
+        return currentPattern;
     }
 
     /**
@@ -91,7 +135,7 @@ public class RegexHistory {
      * @return the LocalDateTime of last usage
      */
     public LocalDateTime getTimestamp() {
-        return timestamp.get();
+        return lastUsed;
     }
 
     /**
@@ -99,7 +143,7 @@ public class RegexHistory {
      * @return the number of times this pattern has been used
      */
     public int getUsageCount() {
-        return usageCount.get();
+        return (int) Math.min(Integer.MAX_VALUE, usage);
     }
 
     // Setters
@@ -112,7 +156,8 @@ public class RegexHistory {
         if (pattern == null || pattern.trim().isEmpty()) {
             throw new IllegalArgumentException("pattern cannot be null or empty");
         }
-        this.pattern.set(pattern);
+        this.currentPattern = pattern;
+        scheduleSync();
     }
 
     /**
@@ -124,22 +169,69 @@ public class RegexHistory {
         if (usageCount < 0) {
             throw new IllegalArgumentException("usageCount cannot be negative");
         }
-        this.usageCount.set(usageCount);
+        this.usage = usageCount;
+        scheduleSync();
     }
 
     /**
-     * Updates the timestamp to the current time.
+     * Updates the timestamp to the current time. The timestamp never moves backwards, even when
+     * several threads update it at once.
      */
     public void updateTimestamp() {
-        this.timestamp.set(LocalDateTime.now());
+        touch(LocalDateTime.now());
+        scheduleSync();
     }
 
     /**
-     * Increments the usage count by 1 and updates the timestamp.
+     * Increments the usage count by 1 and updates the timestamp. Safe to call from any thread.
      */
     public void incrementUsage() {
-        this.usageCount.set(this.usageCount.get() + 1);
-        updateTimestamp();
+        recordUse(LocalDateTime.now());
+    }
+
+    /**
+     * Increments the usage count by 1 for a use at the given time, moving the timestamp forward to
+     * that time unless it is already later. Safe to call from any thread.
+     *
+     * @param time the time of the use (cannot be null)
+     * @return the usage count this use brought the entry to
+     * @throws IllegalArgumentException if time is null
+     */
+    public int recordUse(LocalDateTime time) {
+        if (time == null) {
+            throw new IllegalArgumentException("time cannot be null");
+        }
+        long count = USAGE.incrementAndGet(this);
+        touch(time);
+        scheduleSync();
+        return (int) Math.min(Integer.MAX_VALUE, count);
+    }
+
+    private void touch(LocalDateTime now) {
+        LAST_USED.accumulateAndGet(this, now, (current, candidate) -> candidate.isAfter(current) ? candidate : current);
+    }
+
+    /**
+     * Queues one property refresh for this entry unless one is already waiting.
+     */
+    private void scheduleSync() {
+        if (bound && SYNC_PENDING.compareAndSet(this, 0, 1)) {
+            FxPropertySync.submit(this::syncProperties);
+        }
+    }
+
+    private void syncProperties() {
+        // Cleared first, so a change made while copying schedules another refresh
+        syncPending = 0;
+        if (pattern != null) {
+            pattern.set(getPattern());
+        }
+        if (usageCount != null) {
+            usageCount.set(getUsageCount());
+        }
+        if (timestamp != null) {
+            timestamp.set(getTimestamp());
+        }
     }
 
     /**
@@ -0,0 +1,12 @@
+package gtp.atp.model;
+
+/**
+ * Summary of a streaming find-and-replace run over a file.
+ *
+ * @param bytesRead number of bytes read from the source file
+ * @param bytesWritten number of bytes written to the target file
+ * @param charsProcessed number of characters scanned
+ * @param replacements number of matches replaced
+ */
+public record ReplaceSummary(long bytesRead, long bytesWritten, long charsProcessed, long replacements) {
+}
@@ -0,0 +1,52 @@
+package gtp.atp.model;
+
+/**
+ * A word and the number of times it occurred. Counts from an approximate summary may overestimate
+ * the true number of occurrences, by at most {@code error}; exact counts have no error.
+ *
+ * @param word the word
+ * @param count the number of occurrences, possibly overestimated
+ * @param error the most by which count may exceed the true number of occurrences
+ */
+public record WordCount(String word, long count, long error) {
+
+    public WordCount {
+        if (word == null) {
+            throw new IllegalArgumentException("word cannot be null");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("count cannot be negative");
+        }
+        if (error < 0 || error > count) {
+            throw new IllegalArgumentException("error must be between 0 and count");
+        }
+    }
+
+    /**
+     * Constructs an exact count.
+     *
+     * @param word the word
+     * @param count the number of occurrences
+     */
+    public WordCount(String word, long count) {
+        this(word, count, 0);
+    }
+
+    /**
+     * Gets the number of occurrences the word is known to have had at least.
+     *
+     * @return the count less its possible error
+     */
+    public long guaranteedCount() {
+        return count - error;
+    }
+
+    /**
+     * Checks whether the count is exact.
+     *
+     * @return true if the count has no error
+     */
+    public boolean isExact() {
+        return error == 0;
+    }
+}
@@ -0,0 +1,419 @@
+package gtp.atp.service;
+
+import gtp.atp.model.BatchFileResult;
+import gtp.atp.model.BatchOperation;
+import gtp.atp.model.BatchReport;
+import gtp.atp.model.ExecutionBudget;
+import gtp.atp.util.BudgetedCharSequence;
+import gtp.atp.util.PatternAnalysis;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.stream.Stream;
+
+/**
+ * Applies a sequence of regex operations to every matching file under a directory.
+ * Files are processed concurrently on a bounded thread pool, each one streamed line by line
+ * into a file of the same relative path under the output directory. Every line written keeps the
+ * separator that ended it in the source, and a source without a final separator gives an output
+ * without one. Each output is written to a temporary file and moved into place once complete,
+ * so a failure in one file leaves no partial output; it is recorded in the file's result and
+ * does not stop the job. Only a virtual machine error other than a stack overflow, such as running
+ * out of memory, aborts the job.
+ * With a per-file {@link ExecutionBudget}, a file whose matching runs too long, for instance because
+ * a pattern backtracks catastrophically on one of its lines, fails instead of stalling its worker.
+ */
+public class BatchProcessor {
+    private static final Logger LOGGER = Logger.getLogger(BatchProcessor.class.getName());
+
+    private static final int READ_BUFFER_CHARS = 8192;
+
+    private final RegexHistoryManager historyManager;
+    private final int threads;
+    private final ExecutionBudget fileBudget;
+
+    /**
+     * Constructs a batch processor using one thread per available processor.
+     *
+     * @param historyManager the history manager recording the patterns each job uses (cannot be null)
+     * @throws NullPointerException if historyManager is null
+     */
+    public BatchProcessor(RegexHistoryManager historyManager) {
+        this(historyManager, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a batch processor with a fixed number of worker threads.
+     *
+     * @param historyManager the history manager recording the patterns each job uses (cannot be null)
+     * @param threads the maximum number of files processed at once (must be positive)
+     * @throws NullPointerException if historyManager is null
+     * @throws IllegalArgumentException if threads is not positive
+     */
+    public BatchProcessor(RegexHistoryManager historyManager, int threads) {
+        this(historyManager, threads, null);
+    }
+
+    /**
+     * Constructs a batch processor with a fixed number of worker threads and a matching budget per file.
+     *
+     * @param historyManager the history manager recording the patterns each job uses (cannot be null)
+     * @param threads the maximum number of files processed at once (must be positive)
+     * @param fileBudget the limits all operations on one file must stay within together,
+     *                   or null to let matching run unbounded
+     * @throws NullPointerException if historyManager is null
+     * @throws IllegalArgumentException if threads is not positive
+     */
+    public BatchProcessor(RegexHistoryManager historyManager, int threads, ExecutionBudget fileBudget) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be greater than 0");
+        }
+        this.historyManager = Objects.requireNonNull(historyManager, "History manager cannot be null");
+        this.threads = threads;
+        this.fileBudget = fileBudget;
+    }
+
+    /**
+     * Runs a batch job over all regular files under a directory whose relative path matches a glob.
+     * Each pattern is recorded once in the history per job.
+     *
+     * @param inputDirectory the directory to read files from (cannot be null)
+     * @param glob the glob matched against each file's path relative to the input directory,
+     *             such as {@code *.txt} or {@code **}{@code /*.log}
+     * @param operations the operations to apply to each line, in order (cannot be null or empty)
+     * @param outputDirectory the directory to write processed files to (cannot be null, and must not
+     *                        be the input directory)
+     * @return the per-file results and overall throughput
+     * @throws IOException if the input directory cannot be listed
+     * @throws IllegalArgumentException if operations is empty or contains an invalid pattern, or the
+     *         output directory is the input directory
+     * @throws NullPointerException if any parameter is null
+     */
+    public BatchReport process(Path inputDirectory, String glob, List<BatchOperation> operations,
+                               Path outputDirectory) throws IOException {
+        Objects.requireNonNull(inputDirectory, "Input directory cannot be null");
+        Objects.requireNonNull(glob, "Glob cannot be null");
+        Objects.requireNonNull(outputDirectory, "Output directory cannot be null");
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("At least one operation is required");
+        }
+        if (Files.exists(outputDirectory) && Files.isSameFile(inputDirectory, outputDirectory)) {
+            throw new IllegalArgumentException("Output directory must differ from the input directory");
+        }
+
+        long startTime = System.nanoTime();
+        List<RegexProcessor> processors = new ArrayList<>();
+        for (BatchOperation operation : operations) {
+            processors.add(new RegexProcessor(operation.regex(), historyManager));
+        }
+        processors.forEach(RegexProcessor::recordUsage);
+
+        List<Path> files = listFiles(inputDirectory, glob);
+        LOGGER.info(() -> String.format("Starting batch job over %d files with %d operations",
+                files.size(), operations.size()));
+
+        List<BatchFileResult> results = new ArrayList<>(files.size());
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<BatchFileResult>> futures = new ArrayList<>(files.size());
+            for (Path file : files) {
+                Path target = outputDirectory.resolve(inputDirectory.relativize(file).toString());
+                futures.add(executor.submit(() -> processFile(file, target, operations, processors)));
+            }
+            for (Future<BatchFileResult> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch job interrupted", e);
+        } catch (ExecutionException e) {
+            // processFile records its own failures, so only a virtual machine error reaches here
+            throw new IllegalStateException("Batch worker failed", e.getCause());
+        }
+
+        BatchReport report = new BatchReport(results, System.nanoTime() - startTime);
+        LOGGER.info(() -> String.format("Batch job finished: %d succeeded, %d failed, %.1f MB/s",
+                report.succeededCount(), report.failedCount(), report.bytesPerSecond() / (1024 * 1024)));
+        return report;
+    }
+
+    private List<Path> listFiles(Path inputDirectory, String glob) throws IOException {
+        PathMatcher matcher = inputDirectory.getFileSystem().getPathMatcher("glob:" + glob);
+        try (Stream<Path> paths = Files.walk(inputDirectory)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(inputDirectory.relativize(path)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private BatchFileResult processFile(Path source, Path target, List<BatchOperation> operations,
+                                        List<RegexProcessor> processors) {
+        long startTime = System.nanoTime();
+        Path temp = null;
+        try {
+            // Read directly rather than through FileService.getFileData, whose line stream drops the
+            // separators each output line must keep
+            long fileSize = Files.size(source);
+            Path directory = target.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, target.getFileName() + ".", ".tmp");
+
+            BudgetedCharSequence budget = fileBudget != null ? new BudgetedCharSequence("", fileBudget) : null;
+            LineProcessor lineProcessor = new LineProcessor(operations, processors, budget);
+            try (LineReader lines = new LineReader(Files.newBufferedReader(source, StandardCharsets.UTF_8));
+                 BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                while (lines.next()) {
+                    lineProcessor.process(lines.line(), lines.separator(), writer);
+                }
+            }
+            moveIntoPlace(temp, target);
+
+            return new BatchFileResult(source, target, fileSize, lineProcessor.linesRead,
+                    lineProcessor.linesWritten, lineProcessor.matchCounts(), System.nanoTime() - startTime, null);
+        } catch (StackOverflowError e) {
+            // A pattern recursing too deeply on one line fails that file only; the stack is unwound by now
+            return failed(source, temp, startTime, e);
+        } catch (VirtualMachineError e) {
+            deleteQuietly(temp);
+            throw e;
+        } catch (Throwable e) {
+            return failed(source, temp, startTime, e);
+        }
+    }
+
+    private static BatchFileResult failed(Path source, Path temp, long startTime, Throwable e) {
+        LOGGER.log(Level.WARNING, "Batch processing failed for file: " + source, e);
+        deleteQuietly(temp);
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        return BatchFileResult.failed(source, System.nanoTime() - startTime, error);
+    }
+
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteQuietly(Path temp) {
+        if (temp == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to delete temporary file: " + temp, e);
+        }
+    }
+
+    /**
+     * Runs the operation pipeline over the lines of one file, reusing one matcher per operation.
+     * Lines that lack an operation's required substring skip its matcher entirely.
+     */
+    private static final class LineProcessor {
+        private final List<BatchOperation> operations;
+        private final Matcher[] matchers;
+        private final PatternAnalysis[] analyses;
+        private final BudgetedCharSequence budget;
+        private final long[] matchCounts;
+        private final StringBuilder replaced = new StringBuilder();
+        private String separator;
+        private String lastSeparator = System.lineSeparator();
+        private String deferredSeparator;
+        private long linesRead;
+        private long linesWritten;
+
+        LineProcessor(List<BatchOperation> operations, List<RegexProcessor> processors, BudgetedCharSequence budget) {
+            this.operations = operations;
+            this.budget = budget;
+            this.matchers = new Matcher[operations.size()];
+            this.analyses = new PatternAnalysis[operations.size()];
+            this.matchCounts = new long[operations.size()];
+            for (int i = 0; i < matchers.length; i++) {
+                matchers[i] = processors.get(i).getPattern().matcher("");
+                analyses[i] = processors.get(i).getAnalysis();
+            }
+        }
+
+        void process(String line, String separator, Writer writer) throws IOException {
+            linesRead++;
+            this.separator = separator;
+            if (!separator.isEmpty()) {
+                lastSeparator = separator;
+            }
+            apply(0, line, writer);
+        }
+
+        private void apply(int index, String line, Writer writer) throws IOException {
+            if (index == operations.size()) {
+                write(line, writer);
+                return;
+            }
+
+            BatchOperation operation = operations.get(index);
+            if (analyses[index].cannotMatch(line)) {
+                // No match is possible: searches and extractions drop the line, the rest pass it on unchanged
+                if (operation.type() == BatchOperation.Type.REPLACE || operation.type() == BatchOperation.Type.COUNT) {
+                    apply(index + 1, line, writer);
+                }
+                return;
+            }
+
+            Matcher matcher = matchers[index].reset(budget != null ? budget.wrap(line) : line);
+            switch (operation.type()) {
+                case SEARCH -> {
+                    int found = 0;
+                    while (matcher.find()) {
+                        found++;
+                    }
+                    matchCounts[index] += found;
+                    if (found > 0) {
+                        apply(index + 1, line, writer);
+                    }
+                }
+                case REPLACE -> {
+                    replaced.setLength(0);
+                    while (matcher.find()) {
+                        matcher.appendReplacement(replaced, operation.replacement());
+                        matchCounts[index]++;
+                    }
+                    matcher.appendTail(replaced);
+                    apply(index + 1, replaced.toString(), writer);
+                }
+                case COUNT -> {
+                    while (matcher.find()) {
+                        matchCounts[index]++;
+                    }
+                    apply(index + 1, line, writer);
+                }
+                case EXTRACT -> {
+                    // Later operations use their own matchers, so this one can keep iterating
+                    while (matcher.find()) {
+                        matchCounts[index]++;
+                        apply(index + 1, matcher.group(), writer);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Writes an output line followed by the separator of its source line. After the unterminated
+         * last line, the separator is only written if an extraction yields another line.
+         */
+        private void write(String line, Writer writer) throws IOException {
+            if (deferredSeparator != null) {
+                writer.write(deferredSeparator);
+                deferredSeparator = null;
+            }
+            writer.write(line);
+            if (separator.isEmpty()) {
+                deferredSeparator = lastSeparator;
+            } else {
+                writer.write(separator);
+            }
+            linesWritten++;
+        }
+
+        List<Long> matchCounts() {
+            List<Long> counts = new ArrayList<>(matchCounts.length);
+            for (long count : matchCounts) {
+                counts.add(count);
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Reads lines together with the separator that ended each one: a line feed, a carriage return,
+     * or both. The last line has an empty separator if the input does not end with one.
+     */
+    private static final class LineReader implements AutoCloseable {
+        private final Reader reader;
+        private final char[] buffer = new char[READ_BUFFER_CHARS];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        private String separator;
+
+        LineReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        boolean next() throws IOException {
+            line.setLength(0);
+            if (!fill()) {
+                return false;
+            }
+            while (true) {
+                int start = position;
+                while (position < limit && buffer[position] != '\n' && buffer[position] != '\r') {
+                    position++;
+                }
+                line.append(buffer, start, position - start);
+                if (position < limit) {
+                    break;
+                }
+                if (!fill()) {
+                    separator = "";
+                    return true;
+                }
+            }
+            if (buffer[position++] == '\n') {
+                separator = "\n";
+            } else if (fill() && buffer[position] == '\n') {
+                position++;
+                separator = "\r\n";
+            } else {
+                separator = "\r";
+            }
+            return true;
+        }
+
+        String line() {
+            return line.toString();
+        }
+
+        String separator() {
+            return separator;
+        }
+
+        /**
+         * Makes sure at least one character is buffered, returning false at the end of the input.
+         */
+        private boolean fill() throws IOException {
+            while (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit < 0) {
+                    limit = 0;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package gtp.atp.service;
+
+import gtp.atp.model.MatchSpans;
+import gtp.atp.util.WordScanner;
+
+import java.util.Objects;
+import java.util.stream.Collector;
+
+/**
+ * Estimates the number of distinct strings in a stream using the HyperLogLog algorithm, in memory
+ * fixed by its precision. Each string is hashed to 64 bits; the first {@code precision} bits pick one
+ * of 2<sup>precision</sup> one-byte registers, which remembers the longest run of leading zeros seen
+ * in the remaining bits. The harmonic mean of the registers gives the estimate, with a relative
+ * standard error of about 1.04 / sqrt(2<sup>precision</sup>): 1.6% at the default precision of 12,
+ * for 4 KB. Small cardinalities are estimated by linear counting of empty registers instead.
+ *
+ * <p>Strings are hashed character by character, so words handed over by a {@link WordScanner} and
+ * match spans inside an input are counted without being copied into strings, and the same text
+ * hashes the same whichever way it arrives.
+ *
+ * <p>An estimator is not thread-safe. Estimators of equal precision can be merged, giving the
+ * estimate for the union of their streams, so each thread or file can be counted on its own;
+ * {@link #collector(int)} does so for parallel streams.
+ */
+public class HyperLogLog implements WordScanner.WordSink {
+    /**
+     * Lowest precision supported.
+     */
+    public static final int MIN_PRECISION = 4;
+
+    /**
+     * Highest precision supported.
+     */
+    public static final int MAX_PRECISION = 18;
+
+    /**
+     * Default precision, using 4 KB of registers.
+     */
+    public static final int DEFAULT_PRECISION = 12;
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * Constructs an empty estimator with the default precision.
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Constructs an empty estimator.
+     *
+     * @param precision the number of hash bits used to pick a register, from
+     *                  {@link #MIN_PRECISION} to {@link #MAX_PRECISION}
+     * @throws IllegalArgumentException if precision is out of range
+     */
+    public HyperLogLog(int precision) {
+        this.precision = validatePrecision(precision);
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Creates a collector estimating the number of distinct elements of a stream. Parallel streams
+     * count into one estimator per thread and merge them.
+     *
+     * @param precision the precision of the estimator
+     * @return the collector
+     * @throws IllegalArgumentException if precision is out of range
+     *
+     * @example
+     * long distinct = processor.streamMatchesAndRecord(log)
+     *         .map(MatchResult::getMatchedText)
+     *         .collect(HyperLogLog.collector(14))
+     *         .estimate();
+     */
+    public static Collector<CharSequence, ?, HyperLogLog> collector(int precision) {
+        validatePrecision(precision);
+        return Collector.of(() -> new HyperLogLog(precision), HyperLogLog::add, HyperLogLog::merge,
+                Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * Counts a word given as a slice of a character array.
+     */
+    @Override
+    public void word(char[] chars, int start, int length) {
+        add(chars, start, length);
+    }
+
+    /**
+     * Counts a string given as a slice of a character array.
+     *
+     * @param chars the array holding the string (cannot be null)
+     * @param start the index of the first character
+     * @param length the number of characters
+     * @throws NullPointerException if chars is null
+     * @throws IndexOutOfBoundsException if the slice is not within the array
+     */
+    public void add(char[] chars, int start, int length) {
+        Objects.checkFromIndexSize(start, length, chars.length);
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = start; i < start + length; i++) {
+            hash = (hash ^ chars[i]) * FNV_PRIME;
+        }
+        addHash(mix(hash));
+    }
+
+    /**
+     * Counts a character sequence.
+     *
+     * @param chars the sequence to count (cannot be null)
+     * @throws NullPointerException if chars is null
+     */
+    public void add(CharSequence chars) {
+        add(chars, 0, chars.length());
+    }
+
+    /**
+     * Counts a range of a character sequence without copying it.
+     *
+     * @param chars the sequence holding the range (cannot be null)
+     * @param start the starting index (inclusive)
+     * @param end the ending index (exclusive)
+     * @throws NullPointerException if chars is null
+     * @throws IndexOutOfBoundsException if the range is not within the sequence
+     */
+    public void add(CharSequence chars, int start, int end) {
+        Objects.checkFromToIndex(start, end, chars.length());
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ chars.charAt(i)) * FNV_PRIME;
+        }
+        addHash(mix(hash));
+    }
+
+    /**
+     * Counts the text of every match, reading it from the source the matches were found in.
+     *
+     * @param spans the matches to count (cannot be null)
+     * @throws NullPointerException if spans is null
+     */
+    public void addAll(MatchSpans spans) {
+        CharSequence source = spans.getSource();
+        for (int i = 0; i < spans.size(); i++) {
+            add(source, spans.start(i), spans.end(i));
+        }
+    }
+
+    /**
+     * Counts a precomputed 64-bit hash. Hashes must be uniformly distributed, and other elements
+     * counted by this estimator or any it is merged with must be hashed the same way.
+     *
+     * @param hash the hash of the element
+     */
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // The marker bit caps the rank when every remaining bit is zero
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Adds the elements counted by another estimator to this one.
+     *
+     * @param other the estimator to merge in (cannot be null)
+     * @return this estimator
+     * @throws NullPointerException if other is null
+     * @throws IllegalArgumentException if the precisions differ
+     */
+    public HyperLogLog merge(HyperLogLog other) {
+        Objects.requireNonNull(other, "Estimator cannot be null");
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge estimators of different precision: "
+                    + precision + " and " + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Estimates the number of distinct elements counted.
+     *
+     * @return the estimated cardinality
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int empty = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                empty++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && empty > 0) {
+            estimate = m * Math.log((double) m / empty);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Gets the precision of the estimator.
+     *
+     * @return the number of hash bits used to pick a register
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Gets the relative standard error of the estimates.
+     *
+     * @return the expected relative error, such as 0.016 for 1.6%
+     */
+    public double getRelativeError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    /**
+     * Checks whether anything has been counted.
+     *
+     * @return true if no element was counted
+     */
+    public boolean isEmpty() {
+        for (byte register : registers) {
+            if (register != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int validatePrecision(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException(
+                    "precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+        }
+        return precision;
+    }
+
+    private static double alpha(int m) {
+        return switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+
+    /**
+     * Spreads the bits of an FNV-1a hash, whose high bits depend weakly on the last characters.
+     * This is the finalizer of MurmurHash3.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,197 @@
+package gtp.atp.service;
+
+import gtp.atp.model.FileMatch;
+import gtp.atp.util.RegexUtils;
+import gtp.atp.util.Utf8Utils;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Searches UTF-8 files of any size for a regular expression without loading them onto the heap.
+ * The file is memory-mapped one window at a time and decoded into a reusable character buffer,
+ * so memory use is bounded by the window size rather than the file size, and files larger than
+ * 2 GB are handled by mapping successive windows.
+ *
+ * <p>The last {@code maxMatchLength} characters of each window are carried over into the next one,
+ * so any match of up to that length is found even when it crosses a window boundary. A match that
+ * runs into the end of a window is searched again in the next one. Matches are reported exactly
+ * once, in file order, with absolute byte and character offsets.
+ *
+ * <p>Each window is searched as a region of the text with up to {@code maxMatchLength} characters
+ * of already searched text kept in front of it, so anchors, word boundaries and lookbehind see the
+ * same text as a search of the whole file rather than a new input. Lookbehind cannot see further
+ * back than those characters. Patterns using {@code \G} depend on where the previous match ended,
+ * which a window does not know, and are rejected.
+ */
+public class MappedFileSearcher {
+    /**
+     * Default number of file bytes mapped and decoded per window.
+     */
+    public static final int DEFAULT_WINDOW_BYTES = 8 * 1024 * 1024;
+
+    /**
+     * Default maximum length of a match that is guaranteed to be found across window boundaries.
+     */
+    public static final int DEFAULT_MAX_MATCH_LENGTH = 4096;
+
+    private final Pattern pattern;
+    private final int windowBytes;
+    private final int maxMatchLength;
+
+    /**
+     * Constructs a searcher with the default window size and maximum match length.
+     *
+     * @param pattern the compiled pattern to search for (cannot be null)
+     * @throws NullPointerException if pattern is null
+     */
+    public MappedFileSearcher(Pattern pattern) {
+        this(pattern, DEFAULT_WINDOW_BYTES, DEFAULT_MAX_MATCH_LENGTH);
+    }
+
+    /**
+     * Constructs a searcher with a custom window size and maximum match length.
+     *
+     * @param pattern the compiled pattern to search for (cannot be null)
+     * @param windowBytes the number of bytes mapped per window
+     * @param maxMatchLength the longest match, in characters, guaranteed to be found across windows
+     * @throws NullPointerException if pattern is null
+     * @throws IllegalArgumentException if maxMatchLength is not positive, windowBytes is not
+     *         larger than four times maxMatchLength, or the pattern uses {@code \G}
+     */
+    public MappedFileSearcher(Pattern pattern, int windowBytes, int maxMatchLength) {
+        if (maxMatchLength <= 0) {
+            throw new IllegalArgumentException("maxMatchLength must be greater than 0");
+        }
+        // A window must always decode more characters than it carries over, or the scan cannot advance
+        if (windowBytes <= 4L * maxMatchLength || windowBytes > Integer.MAX_VALUE - 2L * maxMatchLength) {
+            throw new IllegalArgumentException("windowBytes must be larger than four times maxMatchLength");
+        }
+        Objects.requireNonNull(pattern, "Pattern cannot be null");
+        if (RegexUtils.usesPreviousMatchAnchor(pattern.pattern())) {
+            throw new IllegalArgumentException("Patterns using \\G cannot be searched in windows");
+        }
+        this.pattern = pattern;
+        this.windowBytes = windowBytes;
+        this.maxMatchLength = maxMatchLength;
+    }
+
+    /**
+     * Searches a file and passes every match to the sink in file order.
+     *
+     * @param file the UTF-8 encoded file to search (cannot be null)
+     * @param sink the consumer receiving each match (cannot be null)
+     * @return the number of matches found
+     * @throws IOException if the file cannot be read or is not valid UTF-8
+     * @throws NullPointerException if either parameter is null
+     */
+    public long search(Path file, Consumer<FileMatch> sink) throws IOException {
+        return scan(file, Objects.requireNonNull(sink, "Sink cannot be null"));
+    }
+
+    /**
+     * Counts the matches in a file without materializing any matched text.
+     *
+     * @param file the UTF-8 encoded file to search (cannot be null)
+     * @return the number of matches found
+     * @throws IOException if the file cannot be read or is not valid UTF-8
+     * @throws NullPointerException if file is null
+     */
+    public long count(Path file) throws IOException {
+        return scan(file, null);
+    }
+
+    private long scan(Path file, Consumer<FileMatch> sink) throws IOException {
+        Objects.requireNonNull(file, "File cannot be null");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            CharsetDecoder decoder = Utf8Utils.newDecoder();
+
+            // Searched text kept for context, then the carried tail, then a window of new text
+            CharBuffer chars = CharBuffer.allocate(2 * maxMatchLength + windowBytes);
+            Matcher matcher = pattern.matcher("");
+
+            // Offsets of the first character after the context, which is where the search resumes
+            long position = 0;
+            long charBase = 0;
+            long byteBase = 0;
+            int context = 0;
+            long count = 0;
+
+            while (true) {
+                // UTF-8 never decodes to more chars than bytes, so mapping no more than the free space always fits
+                int mapLength = (int) Math.min(Math.min(windowBytes, chars.remaining()), size - position);
+                boolean last = position + mapLength == size;
+                MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, mapLength);
+
+                Utf8Utils.checkResult(decoder.decode(bytes, chars, last));
+                if (last) {
+                    Utf8Utils.checkResult(decoder.flush(chars));
+                }
+                // Bytes of a sequence split by the window end stay unconsumed and are mapped again next time
+                position += bytes.position();
+                chars.flip();
+
+                int length = chars.limit();
+                int safeLimit = last ? length : length - maxMatchLength;
+                int resume = safeLimit;
+                int cursorChar = context;
+                long cursorByte = byteBase;
+
+                matcher.reset(chars)
+                        .region(context, length)
+                        .useTransparentBounds(true)
+                        .useAnchoringBounds(false);
+                while (matcher.find()) {
+                    int start = matcher.start();
+                    if (!last && start >= safeLimit) {
+                        // May be truncated by the window end; the next window sees it in full
+                        break;
+                    }
+                    if (!last && start > context && matcher.hitEnd()) {
+                        // Ran into the window end and could change with more input, so search again from its start
+                        resume = start;
+                        break;
+                    }
+                    int end = matcher.end();
+
+                    cursorByte += Utf8Utils.encodedLength(chars, cursorChar, start);
+                    long startByte = cursorByte;
+                    cursorByte += Utf8Utils.encodedLength(chars, start, end);
+                    cursorChar = end;
+
+                    count++;
+                    if (sink != null) {
+                        sink.accept(new FileMatch(
+                                chars.subSequence(start, end).toString(),
+                                startByte, cursorByte,
+                                charBase + start - context, charBase + end - context));
+                    }
+                    resume = Math.max(safeLimit, end);
+                }
+
+                if (last) {
+                    return count;
+                }
+
+                // Move the context and the unscanned tail to the front of the buffer for the next window
+                byteBase = cursorByte + Utf8Utils.encodedLength(chars, cursorChar, resume);
+                charBase += resume - context;
+                int keep = Math.min(resume, maxMatchLength);
+                chars.position(resume - keep);
+                chars.compact();
+                context = keep;
+            }
+        }
+    }
+}
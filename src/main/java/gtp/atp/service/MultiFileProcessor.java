@@ -0,0 +1,258 @@
+package gtp.atp.service;
+
+import gtp.atp.model.FileReplaceResult;
+import gtp.atp.model.FileSearchResult;
+import gtp.atp.model.MatchResult;
+import gtp.atp.util.FileUtils;
+import gtp.atp.util.MatchSpliterator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Searches or rewrites many small files at once, running one virtual thread per file.
+ * Blocking reads and writes happen freely on the virtual threads, while the regex work itself
+ * is gated by a semaphore sized to the number of cores, so I/O latency no longer limits throughput
+ * and the CPU is not oversubscribed.
+ *
+ * <p>Results are passed to a single sink on the calling thread, either in input order or as soon
+ * as each file completes, so the sink never needs to be thread-safe.
+ */
+public class MultiFileProcessor {
+    private static final Logger LOGGER = Logger.getLogger(MultiFileProcessor.class.getName());
+
+    /**
+     * The order in which results are delivered to the sink.
+     */
+    public enum ResultOrder {
+        /** Results arrive in the order of the input file list. */
+        ORDERED,
+        /** Results arrive as soon as each file completes. */
+        UNORDERED
+    }
+
+    private final FileUtils fileUtils;
+    private final Semaphore matchingPermits;
+
+    /**
+     * Constructs a processor that allows one concurrent regex operation per available processor.
+     */
+    public MultiFileProcessor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a processor with an explicit cap on concurrent regex operations.
+     *
+     * @param maxConcurrentMatching the number of files that may be matched at the same time (must be positive)
+     * @throws IllegalArgumentException if maxConcurrentMatching is not positive
+     */
+    public MultiFileProcessor(int maxConcurrentMatching) {
+        if (maxConcurrentMatching <= 0) {
+            throw new IllegalArgumentException("maxConcurrentMatching must be greater than 0");
+        }
+        this.fileUtils = new FileUtils();
+        this.matchingPermits = new Semaphore(maxConcurrentMatching);
+    }
+
+    /**
+     * Finds all matches of a processor's pattern in each file and records one use of the pattern.
+     *
+     * @param files the files to search (cannot be null)
+     * @param processor the processor whose pattern to search for (cannot be null)
+     * @param order the order in which results are delivered (cannot be null)
+     * @param sink the consumer receiving one result per file on the calling thread (cannot be null)
+     * @throws InterruptedException if the calling thread is interrupted while waiting for results
+     * @throws NullPointerException if any parameter is null
+     */
+    public void search(List<Path> files, RegexProcessor processor, ResultOrder order,
+                       Consumer<FileSearchResult> sink) throws InterruptedException {
+        Objects.requireNonNull(processor, "Processor cannot be null");
+        Pattern pattern = processor.getPattern();
+        processor.recordUsage();
+
+        run(files, file -> {
+            String content = fileUtils.readString(file.toString());
+            List<MatchResult> matches = withMatchingPermit(() ->
+                    MatchSpliterator.stream(pattern, content).toList());
+            return new FileSearchResult(file, matches, null);
+        }, (file, error) -> new FileSearchResult(file, List.of(), error), order, sink);
+    }
+
+    /**
+     * Replaces all matches of a processor's pattern in each file, writing each result under the output
+     * directory at the file's path relative to the deepest directory containing all the files, and
+     * records one use of the pattern.
+     *
+     * @param files the files to rewrite (cannot be null)
+     * @param processor the processor whose pattern to replace (cannot be null)
+     * @param replacement the replacement string (cannot be null)
+     * @param outputDirectory the directory to write rewritten files to (cannot be null)
+     * @param order the order in which results are delivered (cannot be null)
+     * @param sink the consumer receiving one result per file on the calling thread (cannot be null)
+     * @throws InterruptedException if the calling thread is interrupted while waiting for results
+     * @throws IllegalArgumentException if two entries of files are the same file, the files have no
+     *         common root directory, or an output would overwrite one of the files
+     * @throws NullPointerException if any parameter is null
+     */
+    public void replace(List<Path> files, RegexProcessor processor, String replacement, Path outputDirectory,
+                        ResultOrder order, Consumer<FileReplaceResult> sink) throws InterruptedException {
+        Objects.requireNonNull(processor, "Processor cannot be null");
+        Objects.requireNonNull(replacement, "Replacement string cannot be null");
+        Objects.requireNonNull(outputDirectory, "Output directory cannot be null");
+        Map<Path, Path> targets = targets(Objects.requireNonNull(files, "Files cannot be null"), outputDirectory);
+        Pattern pattern = processor.getPattern();
+        processor.recordUsage();
+
+        run(files, file -> {
+            String content = fileUtils.readString(file.toString());
+            ReplacedText replaced = withMatchingPermit(() -> replaceAll(pattern, content, replacement));
+
+            Path target = targets.get(file);
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            Files.writeString(target, replaced.text());
+            return new FileReplaceResult(file, target, replaced.replacements(), null);
+        }, (file, error) -> new FileReplaceResult(file, null, 0, error), order, sink);
+    }
+
+    /**
+     * Maps each file to its output path, keeping its path relative to the deepest directory
+     * that contains all the files, so files of the same name in different directories stay apart.
+     * An output directory that is that directory, or lies under it and maps a file onto another
+     * one, is rejected, since outputs would overwrite files still to be read.
+     */
+    private static Map<Path, Path> targets(List<Path> files, Path outputDirectory) {
+        Path root = null;
+        for (Path file : files) {
+            Path directory = file.toAbsolutePath().normalize().getParent();
+            if (root == null) {
+                root = directory;
+            }
+            while (root != null && !directory.startsWith(root)) {
+                root = root.getParent();
+            }
+            if (root == null) {
+                throw new IllegalArgumentException("Files have no common root directory: " + file);
+            }
+        }
+
+        Path output = outputDirectory.toAbsolutePath().normalize();
+        if (output.equals(root)) {
+            throw new IllegalArgumentException("Output directory cannot be the files' common root: " + root);
+        }
+        Set<Path> sources = new HashSet<>();
+        for (Path file : files) {
+            sources.add(file.toAbsolutePath().normalize());
+        }
+
+        Map<Path, Path> targets = HashMap.newHashMap(files.size());
+        Set<Path> written = new HashSet<>();
+        for (Path file : files) {
+            Path relative = root.relativize(file.toAbsolutePath().normalize());
+            Path target = outputDirectory.resolve(relative.toString());
+            if (!written.add(target)) {
+                throw new IllegalArgumentException("File is listed more than once: " + file);
+            }
+            if (output.startsWith(root) && sources.contains(target.toAbsolutePath().normalize())) {
+                throw new IllegalArgumentException("Output would overwrite an input file: " + target);
+            }
+            targets.put(file, target);
+        }
+        return targets;
+    }
+
+    private <R> void run(List<Path> files, FileTask<R> task, BiFunction<Path, String, R> failure,
+                         ResultOrder order, Consumer<R> sink) throws InterruptedException {
+        Objects.requireNonNull(files, "Files cannot be null");
+        Objects.requireNonNull(order, "Result order cannot be null");
+        Objects.requireNonNull(sink, "Sink cannot be null");
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            if (order == ResultOrder.ORDERED) {
+                List<Future<R>> futures = new ArrayList<>(files.size());
+                for (Path file : files) {
+                    futures.add(executor.submit(() -> runTask(file, task, failure)));
+                }
+                for (Future<R> future : futures) {
+                    sink.accept(getResult(future));
+                }
+            } else {
+                CompletionService<R> completed = new ExecutorCompletionService<>(executor);
+                for (Path file : files) {
+                    completed.submit(() -> runTask(file, task, failure));
+                }
+                for (int i = 0; i < files.size(); i++) {
+                    sink.accept(getResult(completed.take()));
+                }
+            }
+        }
+    }
+
+    private <R> R runTask(Path file, FileTask<R> task, BiFunction<Path, String, R> failure) {
+        try {
+            return task.process(file);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Multi-file processing failed for file: " + file, e);
+            return failure.apply(file, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    private static <R> R getResult(Future<R> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // runTask turns task failures into results, so only an unexpected error reaches here
+            throw new IllegalStateException("Multi-file worker failed", e.getCause());
+        }
+    }
+
+    private <T> T withMatchingPermit(Supplier<T> work) throws InterruptedException {
+        matchingPermits.acquire();
+        try {
+            return work.get();
+        } finally {
+            matchingPermits.release();
+        }
+    }
+
+    private static ReplacedText replaceAll(Pattern pattern, String content, String replacement) {
+        Matcher matcher = pattern.matcher(content);
+        StringBuilder result = new StringBuilder(content.length());
+        long replacements = 0;
+        while (matcher.find()) {
+            matcher.appendReplacement(result, replacement);
+            replacements++;
+        }
+        matcher.appendTail(result);
+        return new ReplacedText(result.toString(), replacements);
+    }
+
+    @FunctionalInterface
+    private interface FileTask<R> {
+        R process(Path file) throws Exception;
+    }
+
+    private record ReplacedText(String text, long replacements) {
+    }
+}
@@ -0,0 +1,269 @@
+package gtp.atp.service;
+
+import gtp.atp.exception.InvalidRegexException;
+import gtp.atp.model.MultiPatternMatch;
+import gtp.atp.util.AhoCorasick;
+import gtp.atp.util.PatternAnalysis;
+import gtp.atp.util.RegexUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Matches a whole set of patterns against an input in one pass instead of one scan per pattern.
+ * Patterns are split into three groups when the matcher is built:
+ * <ul>
+ *     <li>Literal patterns are searched together with an {@link AhoCorasick} automaton.</li>
+ *     <li>Regexes that can safely share a matcher are joined into a single alternation, which
+ *         finds the next position where any of them matches in one pass. Each of them is then tried
+ *         on its own at every position the hit covers, so overlapping matches are not lost.</li>
+ *     <li>The remaining regexes, which use back-references, named groups, lookaround, word
+ *         boundaries, {@code \G} or can match the empty string, are scanned on their own.</li>
+ * </ul>
+ *
+ * <p>Every pattern reports exactly the non-overlapping matches a {@link Matcher#find()} loop over that
+ * pattern alone would, whichever group it falls in; matches of different patterns may overlap.
+ * Text where no joined regex matches is skipped by a single scan, while each hit costs one match
+ * attempt per joined regex and covered position.
+ */
+public class MultiPatternMatcher {
+    private final List<String> patterns;
+
+    private final AhoCorasick literals;
+    private final int[] literalPatterns;
+
+    private final Pattern combined;
+    private final List<Pattern> combinedAlternatives;
+    private final int[] combinedPatterns;
+
+    private final List<Pattern> separate;
+    private final int[] separatePatterns;
+
+    /**
+     * Receives each match found by {@link #scan(CharSequence, MatchHandler)}.
+     */
+    @FunctionalInterface
+    public interface MatchHandler {
+        /**
+         * Called once per match.
+         *
+         * @param patternIndex the index of the matching pattern
+         * @param start the starting index (inclusive) of the match
+         * @param end the ending index (exclusive) of the match
+         */
+        void matched(int patternIndex, int start, int end);
+    }
+
+    /**
+     * Constructs a matcher over a list of patterns.
+     *
+     * @param patterns the regular expressions to match (cannot be null, and none can be null, empty or invalid)
+     * @throws IllegalArgumentException if any pattern is null, empty or not a valid regular expression
+     * @throws NullPointerException if patterns is null
+     */
+    public MultiPatternMatcher(List<String> patterns) {
+        this.patterns = List.copyOf(Objects.requireNonNull(patterns, "Patterns cannot be null"));
+
+        List<String> literalTexts = new ArrayList<>();
+        List<Integer> literalIndexes = new ArrayList<>();
+        List<Integer> combinedIndexes = new ArrayList<>();
+        List<Integer> separateIndexes = new ArrayList<>();
+        this.combinedAlternatives = new ArrayList<>();
+        this.separate = new ArrayList<>();
+        StringBuilder alternation = new StringBuilder();
+
+        for (int i = 0; i < this.patterns.size(); i++) {
+            String regex = this.patterns.get(i);
+            Pattern compiled = compile(regex);
+
+            PatternAnalysis analysis = PatternAnalysis.of(compiled);
+            if (analysis.isLiteral()) {
+                literalTexts.add(analysis.literal());
+                literalIndexes.add(i);
+            } else if (canCombine(regex, compiled)) {
+                if (!alternation.isEmpty()) {
+                    alternation.append('|');
+                }
+                alternation.append('(').append(regex).append(')');
+                combinedAlternatives.add(compiled);
+                combinedIndexes.add(i);
+            } else {
+                separate.add(compiled);
+                separateIndexes.add(i);
+            }
+        }
+
+        this.literals = literalTexts.isEmpty() ? null : new AhoCorasick(literalTexts);
+        this.literalPatterns = toArray(literalIndexes);
+        this.combined = combinedIndexes.isEmpty() ? null : Pattern.compile(alternation.toString());
+        this.combinedPatterns = toArray(combinedIndexes);
+        this.separatePatterns = toArray(separateIndexes);
+    }
+
+    /**
+     * Gets the patterns this matcher was built from.
+     *
+     * @return an unmodifiable list of the patterns, in their original order
+     */
+    public List<String> getPatterns() {
+        return patterns;
+    }
+
+    /**
+     * Finds all matches of all patterns in the input.
+     *
+     * @param input the sequence to search (cannot be null)
+     * @return the matches ordered by start index, then by pattern index
+     * @throws NullPointerException if input is null
+     */
+    public List<MultiPatternMatch> findAll(CharSequence input) {
+        List<MultiPatternMatch> matches = new ArrayList<>();
+        scan(input, (patternIndex, start, end) ->
+                matches.add(new MultiPatternMatch(patternIndex, patterns.get(patternIndex), start, end)));
+        matches.sort(Comparator.comparingInt(MultiPatternMatch::start)
+                .thenComparingInt(MultiPatternMatch::patternIndex));
+        return matches;
+    }
+
+    /**
+     * Counts the matches of each pattern in the input without creating a result per match.
+     *
+     * @param input the sequence to search (cannot be null)
+     * @return the number of matches of each pattern, indexed like {@link #getPatterns()}
+     * @throws NullPointerException if input is null
+     */
+    public long[] countMatches(CharSequence input) {
+        long[] counts = new long[patterns.size()];
+        scan(input, (patternIndex, start, end) -> counts[patternIndex]++);
+        return counts;
+    }
+
+    /**
+     * Passes every match of every pattern to a handler. Matches of each pattern arrive in input order,
+     * but matches of different patterns may be interleaved in any order.
+     *
+     * @param input the sequence to search (cannot be null)
+     * @param handler the handler receiving each match (cannot be null)
+     * @throws NullPointerException if input or handler is null
+     */
+    public void scan(CharSequence input, MatchHandler handler) {
+        Objects.requireNonNull(input, "Input sequence cannot be null");
+        Objects.requireNonNull(handler, "Match handler cannot be null");
+
+        if (literals != null) {
+            // The automaton reports overlapping occurrences; keep the ones a find() loop would
+            int[] lastEnd = new int[literalPatterns.length];
+            literals.search(input, (literal, start, end) -> {
+                if (start >= lastEnd[literal]) {
+                    lastEnd[literal] = end;
+                    handler.matched(literalPatterns[literal], start, end);
+                }
+            });
+        }
+
+        if (combined != null) {
+            scanCombined(input, handler);
+        }
+
+        for (int i = 0; i < separatePatterns.length; i++) {
+            Matcher matcher = separate.get(i).matcher(input);
+            while (matcher.find()) {
+                handler.matched(separatePatterns[i], matcher.start(), matcher.end());
+            }
+        }
+    }
+
+    /**
+     * Finds the matches of the joined regexes. The alternation finds the leftmost position at which
+     * any of them matches, and each regex is then tried at every position of that hit, resuming where
+     * its own previous match ended, so no regex is hidden by another one matching the same text.
+     */
+    private void scanCombined(CharSequence input, MatchHandler handler) {
+        int length = input.length();
+        Matcher matcher = combined.matcher(input);
+        Matcher[] alternatives = new Matcher[combinedAlternatives.size()];
+        for (int i = 0; i < alternatives.length; i++) {
+            alternatives[i] = combinedAlternatives.get(i).matcher(input)
+                    .useTransparentBounds(true)
+                    .useAnchoringBounds(false);
+        }
+        // Where the find() loop of each regex would search next
+        int[] resume = new int[alternatives.length];
+
+        int from = 0;
+        while (from <= length && matcher.find(from)) {
+            int start = matcher.start();
+            int end = Math.max(matcher.end(), start + 1);
+            for (int i = 0; i < alternatives.length; i++) {
+                for (int position = Math.max(resume[i], start); position < end && position <= length; position++) {
+                    Matcher alternative = alternatives[i].region(position, length);
+                    if (alternative.lookingAt()) {
+                        handler.matched(combinedPatterns[i], position, alternative.end());
+                        resume[i] = Math.max(alternative.end(), position + 1);
+                        position = resume[i] - 1;
+                    }
+                }
+            }
+            from = end;
+        }
+    }
+
+    private static Pattern compile(String regex) {
+        if (regex == null || regex.trim().isEmpty()) {
+            throw new IllegalArgumentException("Pattern cannot be null or empty");
+        }
+        try {
+            return RegexUtils.compile(regex);
+        } catch (InvalidRegexException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decides whether a regex keeps its meaning when it becomes one group of a larger alternation.
+     * Group numbers shift, names may clash, zero-width constructs and empty matches change which
+     * alternative wins, {@code \G} depends on where the regex's own previous match ended, and an
+     * unterminated quote or comment would swallow the closing parenthesis.
+     */
+    private static boolean canCombine(String regex, Pattern compiled) {
+        if (compiled.matcher("").matches()) {
+            return false;
+        }
+
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\' && i + 1 < regex.length()) {
+                char escaped = regex.charAt(++i);
+                if (Character.isDigit(escaped) || "kbBGQ".indexOf(escaped) >= 0) {
+                    return false;
+                }
+            } else if (c == '(' && i + 1 < regex.length() && regex.charAt(i + 1) == '?') {
+                int j = i + 2;
+                if (j < regex.length() && "=!<".indexOf(regex.charAt(j)) >= 0) {
+                    return false;
+                }
+                while (j < regex.length() && Character.isLetter(regex.charAt(j))) {
+                    if (regex.charAt(j) == 'x') {
+                        return false;
+                    }
+                    j++;
+                }
+            }
+        }
+
+        try {
+            return Pattern.compile("(" + regex + ")").matcher("").groupCount()
+                    == compiled.matcher("").groupCount() + 1;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
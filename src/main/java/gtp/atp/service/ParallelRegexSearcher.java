@@ -0,0 +1,326 @@
+package gtp.atp.service;
+
+import gtp.atp.model.FileMatch;
+import gtp.atp.model.MatchResult;
+import gtp.atp.util.Utf8Utils;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Searches a single large input on several cores at once.
+ * The input is split into line-aligned chunks that are matched independently on a fork-join pool,
+ * and the per-chunk results are merged in input order with global offsets. Inputs smaller than the
+ * sequential threshold are searched on the calling thread. File chunks are decoded in line-aligned
+ * windows of a few megabytes, so memory use does not grow with the file size.
+ *
+ * <p>Because chunks end at line breaks, results are identical to a sequential scan for any pattern
+ * whose matches do not span a line break. Matches that would cross a chunk boundary are cut at it.
+ */
+public class ParallelRegexSearcher {
+    /**
+     * Default input size, in characters or bytes, below which the search runs sequentially.
+     */
+    public static final int DEFAULT_SEQUENTIAL_THRESHOLD = 1024 * 1024;
+
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final long MAX_FILE_CHUNK_BYTES = 256 * 1024 * 1024;
+    private static final int WINDOW_BYTES = 8 * 1024 * 1024;
+    private static final int BOUNDARY_PROBE_BYTES = 64 * 1024;
+
+    private final Pattern pattern;
+    private final int parallelism;
+    private final int sequentialThreshold;
+
+    /**
+     * Constructs a searcher using all available processors and the default sequential threshold.
+     *
+     * @param pattern the compiled pattern to search for (cannot be null)
+     * @throws NullPointerException if pattern is null
+     */
+    public ParallelRegexSearcher(Pattern pattern) {
+        this(pattern, Runtime.getRuntime().availableProcessors(), DEFAULT_SEQUENTIAL_THRESHOLD);
+    }
+
+    /**
+     * Constructs a searcher with an explicit parallelism level and sequential threshold.
+     *
+     * @param pattern the compiled pattern to search for (cannot be null)
+     * @param parallelism the number of worker threads to use (must be positive)
+     * @param sequentialThreshold the input size below which no worker threads are used (cannot be negative)
+     * @throws NullPointerException if pattern is null
+     * @throws IllegalArgumentException if parallelism or sequentialThreshold is out of range
+     */
+    public ParallelRegexSearcher(Pattern pattern, int parallelism, int sequentialThreshold) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be greater than 0");
+        }
+        if (sequentialThreshold < 0) {
+            throw new IllegalArgumentException("sequentialThreshold cannot be negative");
+        }
+        this.pattern = Objects.requireNonNull(pattern, "Pattern cannot be null");
+        this.parallelism = parallelism;
+        this.sequentialThreshold = sequentialThreshold;
+    }
+
+    /**
+     * Finds all matches in a character sequence.
+     * Results over a {@link String} input copy their text lazily; see {@link MatchResult}.
+     *
+     * @param input the sequence to search (cannot be null)
+     * @return all matches in input order
+     * @throws NullPointerException if input is null
+     */
+    public List<MatchResult> search(CharSequence input) {
+        Objects.requireNonNull(input, "Input sequence cannot be null");
+
+        int length = input.length();
+        if (length < sequentialThreshold || parallelism == 1) {
+            return searchRegion(input, 0, length);
+        }
+
+        List<Callable<List<MatchResult>>> tasks = new ArrayList<>();
+        long target = chunkTarget(length);
+        int start = 0;
+        while (start < length) {
+            int end = lineEnd(input, (int) Math.min(length, start + target));
+            int chunkStart = start;
+            tasks.add(() -> searchRegion(input, chunkStart, end));
+            start = end;
+        }
+
+        List<MatchResult> results = new ArrayList<>();
+        try {
+            for (List<MatchResult> chunk : invokeAll(tasks)) {
+                results.addAll(chunk);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unexpected I/O failure in in-memory search", e);
+        }
+        return results;
+    }
+
+    /**
+     * Finds all matches in a UTF-8 file, reading each chunk through memory mappings.
+     *
+     * @param file the UTF-8 encoded file to search (cannot be null)
+     * @return all matches in file order, with absolute byte and character offsets
+     * @throws IOException if the file cannot be read, is not valid UTF-8, or has a single line
+     *         longer than a window can hold
+     * @throws NullPointerException if file is null
+     */
+    public List<FileMatch> search(Path file) throws IOException {
+        Objects.requireNonNull(file, "File cannot be null");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            boolean sequential = size < sequentialThreshold || parallelism == 1;
+            long target = sequential ? MAX_FILE_CHUNK_BYTES : Math.min(chunkTarget(size), MAX_FILE_CHUNK_BYTES);
+
+            List<Callable<FileChunk>> tasks = new ArrayList<>();
+            long start = 0;
+            while (start < size) {
+                long end = lineEnd(channel, Math.min(size, start + target));
+                long chunkStart = start;
+                tasks.add(() -> searchChunk(channel, chunkStart, end));
+                start = end;
+            }
+
+            List<FileChunk> chunks;
+            if (sequential || tasks.size() == 1) {
+                chunks = new ArrayList<>(tasks.size());
+                for (Callable<FileChunk> task : tasks) {
+                    chunks.add(task.call());
+                }
+            } else {
+                chunks = invokeAll(tasks);
+            }
+
+            // Character offsets are only known once every earlier chunk has been decoded
+            List<FileMatch> results = new ArrayList<>();
+            long charBase = 0;
+            for (FileChunk chunk : chunks) {
+                for (FileMatch match : chunk.matches()) {
+                    results.add(new FileMatch(match.matchedText(), match.byteStart(), match.byteEnd(),
+                            charBase + match.charStart(), charBase + match.charEnd()));
+                }
+                charBase += chunk.charCount();
+            }
+            return results;
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to search file: " + file, e);
+        }
+    }
+
+    private List<MatchResult> searchRegion(CharSequence input, int start, int end) {
+        Matcher matcher = pattern.matcher(input)
+                .region(start, end)
+                .useTransparentBounds(true)
+                .useAnchoringBounds(false);
+
+        List<MatchResult> results = new ArrayList<>();
+        while (matcher.find()) {
+            results.add(MatchResult.ofSpan(input, matcher.start(), matcher.end(), pattern.pattern()));
+        }
+        return results;
+    }
+
+    /**
+     * Searches the bytes from start to end, which lie on line boundaries. The chunk is mapped and
+     * decoded one line-aligned window at a time into a reused buffer, so memory use is bounded by
+     * the window size, or by the longest line if that is longer.
+     */
+    private FileChunk searchChunk(FileChannel channel, long start, long end) throws IOException {
+        List<FileMatch> matches = new ArrayList<>();
+        CharsetDecoder decoder = Utf8Utils.newDecoder();
+        CharBuffer chars = null;
+        long charCount = 0;
+
+        long windowStart = start;
+        while (windowStart < end) {
+            long windowEnd = lineEnd(channel, Math.min(end, windowStart + WINDOW_BYTES));
+            if (windowEnd - windowStart > Integer.MAX_VALUE - 3) {
+                throw new IOException("Line too long to search in windows near byte offset " + windowStart);
+            }
+            int byteLength = (int) (windowEnd - windowStart);
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, byteLength);
+
+            // Surround the window with the characters a sequential scan would see on either side,
+            // so anchors and lookaround behave the same at window boundaries; windows start after a line feed
+            int before = windowStart > 0 ? 1 : 0;
+            int capacity = before + byteLength + 2;
+            if (chars == null || chars.capacity() < capacity) {
+                chars = CharBuffer.allocate(Math.max(capacity, (int) Math.min(WINDOW_BYTES + 3L, end - start + 3)));
+            }
+            chars.clear();
+            if (before > 0) {
+                chars.put('\n');
+            }
+            decoder.reset();
+            Utf8Utils.checkResult(decoder.decode(bytes, chars, true));
+            Utf8Utils.checkResult(decoder.flush(chars));
+            int windowChars = chars.position();
+            readLeadingChar(channel, windowEnd, chars);
+            chars.flip();
+
+            Matcher matcher = pattern.matcher(chars)
+                    .region(before, windowChars)
+                    .useTransparentBounds(true)
+                    .useAnchoringBounds(false);
+            int cursorChar = before;
+            long cursorByte = windowStart;
+            long charBase = charCount - before;
+            while (matcher.find()) {
+                int matchStart = matcher.start();
+                int matchEnd = matcher.end();
+                cursorByte += Utf8Utils.encodedLength(chars, cursorChar, matchStart);
+                long startByte = cursorByte;
+                cursorByte += Utf8Utils.encodedLength(chars, matchStart, matchEnd);
+                cursorChar = matchEnd;
+                matches.add(new FileMatch(chars.subSequence(matchStart, matchEnd).toString(),
+                        startByte, cursorByte, charBase + matchStart, charBase + matchEnd));
+            }
+
+            charCount += windowChars - before;
+            windowStart = windowEnd;
+        }
+        return new FileChunk(matches, charCount);
+    }
+
+    /**
+     * Decodes the character starting at the given byte offset, if any, into the buffer.
+     */
+    private static void readLeadingChar(FileChannel channel, long position, CharBuffer chars) throws IOException {
+        long size = channel.size();
+        if (position >= size) {
+            return;
+        }
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(4, size - position));
+        CharBuffer leading = CharBuffer.allocate(2);
+        if (!Utf8Utils.newDecoder().decode(bytes, leading, false).isError()) {
+            chars.put(leading.flip());
+        }
+    }
+
+    private long chunkTarget(long length) {
+        return Math.max(sequentialThreshold, 1 + length / ((long) parallelism * CHUNKS_PER_THREAD));
+    }
+
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException {
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel search interrupted", e);
+        } catch (ExecutionException e) {
+            // The pool wraps checked exceptions thrown by a task, possibly more than once
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException ioException) {
+                    throw ioException;
+                }
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Parallel search failed", cause);
+        }
+    }
+
+    /**
+     * Returns the index just past the first line break at or after the given position.
+     */
+    private static int lineEnd(CharSequence input, int position) {
+        int length = input.length();
+        while (position < length && input.charAt(position - 1) != '\n') {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Returns the byte offset just past the first line break at or after the given position.
+     * A line feed byte never occurs inside a multi-byte UTF-8 sequence, so this is also a safe decode boundary.
+     */
+    private static long lineEnd(FileChannel channel, long position) throws IOException {
+        long size = channel.size();
+        while (position < size) {
+            long probeStart = position - 1;
+            int probeLength = (int) Math.min(BOUNDARY_PROBE_BYTES, size - probeStart);
+            MappedByteBuffer probe = channel.map(FileChannel.MapMode.READ_ONLY, probeStart, probeLength);
+            for (int i = 0; i < probeLength; i++) {
+                if (probe.get(i) == '\n') {
+                    return probeStart + i + 1;
+                }
+            }
+            position = probeStart + probeLength + 1;
+        }
+        return size;
+    }
+
+    /**
+     * Matches found in one file chunk, with character offsets relative to the chunk.
+     */
+    private record FileChunk(List<FileMatch> matches, long charCount) {
+    }
+}
@@ -0,0 +1,283 @@
+package gtp.atp.service;
+
+import gtp.atp.util.Utf8Utils;
+import gtp.atp.util.WordCountTable;
+import gtp.atp.util.WordScanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Counts word frequencies in a single large input on several cores at once, map-reduce style.
+ * The input is split into chunks that end between words, and the chunks are scanned on a fork-join
+ * pool. Each worker thread counts into its own {@link WordCountTable}, so counting takes no locks,
+ * and the per-thread tables are merged once every chunk is done. Inputs smaller than the sequential
+ * threshold are counted on the calling thread.
+ *
+ * <p>Because no word is cut by a chunk boundary, the counts are identical to a sequential scan.
+ */
+public class ParallelWordCounter {
+    /**
+     * Default input size, in characters or bytes, below which counting runs sequentially.
+     */
+    public static final int DEFAULT_SEQUENTIAL_THRESHOLD = 1024 * 1024;
+
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int parallelism;
+    private final int sequentialThreshold;
+
+    /**
+     * Constructs a counter using all available processors and the default sequential threshold.
+     */
+    public ParallelWordCounter() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_SEQUENTIAL_THRESHOLD);
+    }
+
+    /**
+     * Constructs a counter with an explicit parallelism level and sequential threshold.
+     *
+     * @param parallelism the number of worker threads to use (must be positive)
+     * @param sequentialThreshold the input size below which no worker threads are used (cannot be negative)
+     * @throws IllegalArgumentException if parallelism or sequentialThreshold is out of range
+     */
+    public ParallelWordCounter(int parallelism, int sequentialThreshold) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be greater than 0");
+        }
+        if (sequentialThreshold < 0) {
+            throw new IllegalArgumentException("sequentialThreshold cannot be negative");
+        }
+        this.parallelism = parallelism;
+        this.sequentialThreshold = sequentialThreshold;
+    }
+
+    /**
+     * Counts the words in a character sequence.
+     *
+     * @param input the text to count (cannot be null)
+     * @return the number of occurrences of each lowercase word
+     * @throws NullPointerException if input is null
+     */
+    public WordCountTable count(CharSequence input) {
+        Objects.requireNonNull(input, "Input sequence cannot be null");
+
+        int length = input.length();
+        if (length < sequentialThreshold || parallelism == 1) {
+            WordCountTable table = new WordCountTable();
+            countRegion(input, 0, length, table);
+            return table;
+        }
+
+        Map<Thread, WordCountTable> tables = new ConcurrentHashMap<>();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        long target = chunkTarget(length);
+        int start = 0;
+        while (start < length) {
+            int end = wordBoundary(input, (int) Math.min(length, start + target));
+            int chunkStart = start;
+            tasks.add(() -> {
+                countRegion(input, chunkStart, end, tableOf(tables));
+                return null;
+            });
+            start = end;
+        }
+
+        try {
+            invokeAll(tasks);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unexpected I/O failure in in-memory count", e);
+        }
+        return merge(tables.values());
+    }
+
+    /**
+     * Counts the words in a UTF-8 file. Each chunk is read and decoded in buffers by its own worker.
+     *
+     * @param file the UTF-8 encoded file to count (cannot be null)
+     * @return the number of occurrences of each lowercase word
+     * @throws IOException if the file cannot be read or is not valid UTF-8
+     * @throws NullPointerException if file is null
+     */
+    public WordCountTable count(Path file) throws IOException {
+        Objects.requireNonNull(file, "File cannot be null");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < sequentialThreshold || parallelism == 1) {
+                WordCountTable table = new WordCountTable();
+                countChunk(channel, 0, size, table);
+                return table;
+            }
+
+            Map<Thread, WordCountTable> tables = new ConcurrentHashMap<>();
+            List<Callable<Void>> tasks = new ArrayList<>();
+            long target = chunkTarget(size);
+            long start = 0;
+            while (start < size) {
+                long end = wordBoundary(channel, Math.min(size, start + target));
+                long chunkStart = start;
+                tasks.add(() -> {
+                    countChunk(channel, chunkStart, end, tableOf(tables));
+                    return null;
+                });
+                start = end;
+            }
+
+            invokeAll(tasks);
+            return merge(tables.values());
+        }
+    }
+
+    private static WordCountTable tableOf(Map<Thread, WordCountTable> tables) {
+        return tables.computeIfAbsent(Thread.currentThread(), thread -> new WordCountTable());
+    }
+
+    /**
+     * Merges the per-thread tables into the largest one, which saves re-inserting its words.
+     */
+    private static WordCountTable merge(Collection<WordCountTable> tables) {
+        WordCountTable merged = null;
+        for (WordCountTable table : tables) {
+            if (merged == null || table.size() > merged.size()) {
+                merged = table;
+            }
+        }
+        if (merged == null) {
+            return new WordCountTable();
+        }
+        for (WordCountTable table : tables) {
+            if (table != merged) {
+                merged.addAll(table);
+            }
+        }
+        return merged;
+    }
+
+    private static void countRegion(CharSequence input, int start, int end, WordCountTable table) {
+        WordScanner scanner = new WordScanner();
+        char[] buffer = new char[Math.min(BUFFER_SIZE, end - start)];
+        for (int from = start; from < end; from += buffer.length) {
+            int to = Math.min(end, from + buffer.length);
+            if (input instanceof String string) {
+                string.getChars(from, to, buffer, 0);
+            } else {
+                for (int i = from; i < to; i++) {
+                    buffer[i - from] = input.charAt(i);
+                }
+            }
+            scanner.feed(buffer, 0, to - from, table);
+        }
+        scanner.finish(table);
+    }
+
+    /**
+     * Reads, decodes and counts the bytes from start to end with positional reads, which several
+     * workers may issue on the same channel at once.
+     */
+    private static void countChunk(FileChannel channel, long start, long end, WordCountTable table) throws IOException {
+        CharsetDecoder decoder = Utf8Utils.newDecoder();
+        WordScanner scanner = new WordScanner();
+        ByteBuffer bytes = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(end - start, 16)));
+        // Decoding never yields more characters than bytes, so the characters always fit
+        CharBuffer chars = CharBuffer.allocate(bytes.capacity());
+
+        long position = start;
+        while (position < end) {
+            bytes.limit((int) Math.min(bytes.capacity(), bytes.position() + (end - position)));
+            int read = channel.read(bytes, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+            bytes.flip();
+            Utf8Utils.checkResult(decoder.decode(bytes, chars, position >= end));
+            bytes.compact();
+            scanner.feed(chars.array(), 0, chars.position(), table);
+            chars.clear();
+        }
+        bytes.flip();
+        Utf8Utils.checkResult(decoder.decode(bytes, chars, true));
+        Utf8Utils.checkResult(decoder.flush(chars));
+        scanner.feed(chars.array(), 0, chars.position(), table);
+        scanner.finish(table);
+    }
+
+    private long chunkTarget(long length) {
+        return Math.max(sequentialThreshold, 1 + length / ((long) parallelism * CHUNKS_PER_THREAD));
+    }
+
+    private void invokeAll(List<Callable<Void>> tasks) throws IOException {
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel word count interrupted", e);
+        } catch (ExecutionException e) {
+            // The pool wraps checked exceptions thrown by a task, possibly more than once
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException ioException) {
+                    throw ioException;
+                }
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Parallel word count failed", cause);
+        }
+    }
+
+    /**
+     * Returns the first index at or after the given position that directly follows a non-word character.
+     */
+    private static int wordBoundary(CharSequence input, int position) {
+        int length = input.length();
+        while (position < length && WordScanner.isWordChar(input.charAt(position - 1))) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Returns the first byte offset at or after the given position that directly follows an ASCII
+     * non-word byte. Such a byte is a whole character, so the offset is also a safe decode boundary.
+     */
+    private static long wordBoundary(FileChannel channel, long position) throws IOException {
+        long size = channel.size();
+        ByteBuffer probe = ByteBuffer.allocate(BUFFER_SIZE);
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position - 1);
+            if (read <= 0) {
+                return size;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = probe.get(i);
+                if (b >= 0 && !WordScanner.isWordChar((char) b)) {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,438 @@
+package gtp.atp.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A case-insensitive substring and prefix index over a set of patterns, maintained incrementally
+ * as patterns are added and removed.
+ *
+ * <p>Substring queries use a trigram inverted index: every pattern is filed under each run of three
+ * characters of its lowercase form, in a posting list of pattern ids kept in ascending order. A query
+ * of at least three characters intersects the posting lists of its own trigrams, smallest first, and
+ * verifies the few remaining candidates with {@link String#contains(CharSequence)}, so its cost
+ * depends on the rarest trigram rather than on the number of patterns. Prefix queries narrow their
+ * candidates the same way and verify them with {@link String#startsWith(String)}. Queries shorter
+ * than three characters check every pattern. Trigrams are kept in a primitive open-addressing
+ * table and posting lists in plain int arrays, so the trigram index holds no boxed keys; only the
+ * map from each pattern to its id boxes one integer per pattern.
+ *
+ * <p>Ids of removed patterns stay in the posting lists and are skipped by queries until they
+ * outnumber the live patterns, when the lists are rebuilt; removal therefore costs amortized
+ * constant time per trigram. The index is thread-safe: queries run concurrently with each other,
+ * changes exclusively.
+ */
+public class PatternSearchIndex {
+    /**
+     * Length of the character runs the substring index is built on; shorter queries cannot use it.
+     */
+    public static final int GRAM_LENGTH = 3;
+
+    private static final int MIN_REBUILD_DEAD_IDS = 1024;
+    private static final long NO_GRAM = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] patterns;
+    private String[] lowerCased;
+    private int nextId;
+    private int deadIds;
+
+    // Trigram table: each packed trigram maps to the index of its posting list
+    private long[] gramKeys;
+    private int[] gramLists;
+    private int gramCount;
+
+    // Posting lists, indexed by list
+    private int[][] postingIds;
+    private int[] postingSizes;
+
+    /**
+     * Constructs an empty index.
+     */
+    public PatternSearchIndex() {
+        reset();
+    }
+
+    /**
+     * Adds a pattern to the index. Adding a pattern already in the index has no effect.
+     *
+     * @param pattern the pattern to add (cannot be null)
+     * @throws NullPointerException if pattern is null
+     */
+    public void add(String pattern) {
+        Objects.requireNonNull(pattern, "Pattern cannot be null");
+        lock.writeLock().lock();
+        try {
+            addLocked(pattern);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a pattern from the index. Removing a pattern not in the index has no effect.
+     *
+     * @param pattern the pattern to remove (cannot be null)
+     * @throws NullPointerException if pattern is null
+     */
+    public void remove(String pattern) {
+        Objects.requireNonNull(pattern, "Pattern cannot be null");
+        lock.writeLock().lock();
+        try {
+            removeLocked(pattern);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or removes a pattern according to a condition evaluated while no other change can run.
+     * Callers that update their own collection first and then call this method leave the index
+     * matching the collection, however their calls interleave.
+     *
+     * @param pattern the pattern to add or remove (cannot be null)
+     * @param present tells whether the pattern should be in the index
+     * @throws NullPointerException if pattern or present is null
+     */
+    public void update(String pattern, BooleanSupplier present) {
+        Objects.requireNonNull(pattern, "Pattern cannot be null");
+        Objects.requireNonNull(present, "Condition cannot be null");
+        lock.writeLock().lock();
+        try {
+            if (present.getAsBoolean()) {
+                addLocked(pattern);
+            } else {
+                removeLocked(pattern);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every pattern from the index.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ids.clear();
+            reset();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void reset() {
+        patterns = new String[INITIAL_CAPACITY];
+        lowerCased = new String[INITIAL_CAPACITY];
+        nextId = 0;
+        deadIds = 0;
+        resetGrams(INITIAL_CAPACITY);
+    }
+
+    private void resetGrams(int capacity) {
+        gramKeys = new long[capacity];
+        Arrays.fill(gramKeys, NO_GRAM);
+        gramLists = new int[capacity];
+        gramCount = 0;
+        postingIds = new int[capacity][];
+        postingSizes = new int[capacity];
+    }
+
+    /**
+     * Gets the number of patterns in the index.
+     *
+     * @return the pattern count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gives an upper bound on the number of patterns a substring query would have to verify:
+     * the length of the shortest posting list among the query's trigrams, or the number of
+     * patterns if the query is too short to use the index.
+     *
+     * @param substring the text to search for (cannot be null)
+     * @return the most candidates {@link #findContaining(String)} would examine
+     * @throws NullPointerException if substring is null
+     */
+    public int candidateBound(String substring) {
+        String term = lowerCase(substring);
+        lock.readLock().lock();
+        try {
+            if (term.length() < GRAM_LENGTH) {
+                return ids.size();
+            }
+            int bound = Integer.MAX_VALUE;
+            for (long gram : grams(term)) {
+                int list = listOf(gram);
+                bound = Math.min(bound, list < 0 ? 0 : postingSizes[list]);
+            }
+            return bound;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds every pattern containing a substring, ignoring case.
+     *
+     * @param substring the text to search for (cannot be null or empty)
+     * @return the matching patterns, in no particular order
+     * @throws IllegalArgumentException if substring is empty
+     * @throws NullPointerException if substring is null
+     *
+     * @example
+     * index.add("\\d{3}-\\d{4}");
+     * index.findContaining("D{3");
+     * // Returns ["\\d{3}-\\d{4}"]
+     */
+    public List<String> findContaining(String substring) {
+        String term = lowerCase(substring);
+        if (term.isEmpty()) {
+            throw new IllegalArgumentException("Substring cannot be empty");
+        }
+        return find(term, false);
+    }
+
+    /**
+     * Finds every pattern starting with a prefix, ignoring case.
+     *
+     * @param prefix the text the patterns must start with (cannot be null or empty)
+     * @return the matching patterns, in no particular order
+     * @throws IllegalArgumentException if prefix is empty
+     * @throws NullPointerException if prefix is null
+     */
+    public List<String> findByPrefix(String prefix) {
+        String term = lowerCase(prefix);
+        if (term.isEmpty()) {
+            throw new IllegalArgumentException("Prefix cannot be empty");
+        }
+        return find(term, true);
+    }
+
+    private List<String> find(String term, boolean prefix) {
+        lock.readLock().lock();
+        try {
+            List<String> found = new ArrayList<>();
+            if (term.length() < GRAM_LENGTH) {
+                for (int id = 0; id < nextId; id++) {
+                    if (lowerCased[id] != null && matches(lowerCased[id], term, prefix)) {
+                        found.add(patterns[id]);
+                    }
+                }
+                return found;
+            }
+
+            long[] grams = grams(term);
+            Integer[] lists = new Integer[grams.length];
+            for (int i = 0; i < grams.length; i++) {
+                int list = listOf(grams[i]);
+                if (list < 0) {
+                    return found;
+                }
+                lists[i] = list;
+            }
+            Arrays.sort(lists, Comparator.comparingInt(list -> postingSizes[list]));
+
+            int[] smallest = postingIds[lists[0]];
+            candidates:
+            for (int k = 0, size = postingSizes[lists[0]]; k < size; k++) {
+                int id = smallest[k];
+                if (lowerCased[id] == null) {
+                    continue;
+                }
+                for (int i = 1; i < lists.length; i++) {
+                    if (Arrays.binarySearch(postingIds[lists[i]], 0, postingSizes[lists[i]], id) < 0) {
+                        continue candidates;
+                    }
+                }
+                // The trigrams may occur apart from each other, so the whole term is checked
+                if (matches(lowerCased[id], term, prefix)) {
+                    found.add(patterns[id]);
+                }
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean matches(String lower, String term, boolean prefix) {
+        return prefix ? lower.startsWith(term) : lower.contains(term);
+    }
+
+    /**
+     * Lowercases text the way the index does, independently of the default locale.
+     *
+     * @param text the text to lowercase (cannot be null)
+     * @return the lowercase text
+     * @throws NullPointerException if text is null
+     */
+    public static String lowerCase(String text) {
+        return Objects.requireNonNull(text, "Text cannot be null").toLowerCase(Locale.ROOT);
+    }
+
+    private void addLocked(String pattern) {
+        if (ids.containsKey(pattern)) {
+            return;
+        }
+        String lower = lowerCase(pattern);
+        int id = nextId++;
+        if (id == patterns.length) {
+            patterns = Arrays.copyOf(patterns, id * 2);
+            lowerCased = Arrays.copyOf(lowerCased, id * 2);
+        }
+        patterns[id] = pattern;
+        lowerCased[id] = lower;
+        ids.put(pattern, id);
+        file(id, lower);
+    }
+
+    private void removeLocked(String pattern) {
+        Integer id = ids.remove(pattern);
+        if (id == null) {
+            return;
+        }
+        patterns[id] = null;
+        lowerCased[id] = null;
+        if (++deadIds > Math.max(MIN_REBUILD_DEAD_IDS, ids.size())) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Renumbers the live patterns densely and refiles them, dropping the ids of removed patterns.
+     */
+    private void rebuild() {
+        String[] live = new String[Math.max(INITIAL_CAPACITY, ids.size() * 2)];
+        String[] liveLower = new String[live.length];
+        int count = 0;
+        resetGrams(Math.max(INITIAL_CAPACITY, gramKeys.length));
+        for (int id = 0; id < nextId; id++) {
+            if (patterns[id] != null) {
+                live[count] = patterns[id];
+                liveLower[count] = lowerCased[id];
+                ids.put(patterns[id], count);
+                file(count, lowerCased[id]);
+                count++;
+            }
+        }
+        patterns = live;
+        lowerCased = liveLower;
+        nextId = count;
+        deadIds = 0;
+    }
+
+    /**
+     * Appends an id to the posting list of each distinct trigram of a lowercase pattern. Ids are
+     * filed in increasing order, so every posting list stays sorted.
+     */
+    private void file(int id, String lower) {
+        if (lower.length() < GRAM_LENGTH) {
+            return;
+        }
+        for (long gram : grams(lower)) {
+            int list = listOf(gram);
+            if (list < 0) {
+                list = newList(gram);
+            }
+            int size = postingSizes[list];
+            if (size == postingIds[list].length) {
+                postingIds[list] = Arrays.copyOf(postingIds[list], size * 2);
+            }
+            postingIds[list][size] = id;
+            postingSizes[list] = size + 1;
+        }
+    }
+
+    private int listOf(long gram) {
+        int mask = gramKeys.length - 1;
+        for (int slot = mix(gram) & mask; ; slot = (slot + 1) & mask) {
+            if (gramKeys[slot] == gram) {
+                return gramLists[slot];
+            }
+            if (gramKeys[slot] == NO_GRAM) {
+                return -1;
+            }
+        }
+    }
+
+    private int newList(long gram) {
+        // Kept at most half full, so probes stay short and an empty slot always ends them
+        if ((gramCount + 1) * 2 > gramKeys.length) {
+            growGrams();
+        }
+        int list = gramCount++;
+        if (list == postingIds.length) {
+            postingIds = Arrays.copyOf(postingIds, list * 2);
+            postingSizes = Arrays.copyOf(postingSizes, list * 2);
+        }
+        postingIds[list] = new int[2];
+        insertGram(gram, list);
+        return list;
+    }
+
+    private void growGrams() {
+        long[] oldKeys = gramKeys;
+        int[] oldLists = gramLists;
+        gramKeys = new long[oldKeys.length * 2];
+        Arrays.fill(gramKeys, NO_GRAM);
+        gramLists = new int[gramKeys.length];
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != NO_GRAM) {
+                insertGram(oldKeys[slot], oldLists[slot]);
+            }
+        }
+    }
+
+    private void insertGram(long gram, int list) {
+        int mask = gramKeys.length - 1;
+        int slot = mix(gram) & mask;
+        while (gramKeys[slot] != NO_GRAM) {
+            slot = (slot + 1) & mask;
+        }
+        gramKeys[slot] = gram;
+        gramLists[slot] = list;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Returns the distinct trigrams of a text, each packed into a long.
+     */
+    private static long[] grams(String text) {
+        long[] grams = new long[text.length() - GRAM_LENGTH + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+}
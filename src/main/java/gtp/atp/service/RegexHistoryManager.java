@@ -1,19 +1,174 @@
 package gtp.atp.service;
 
 import gtp.atp.exception.InvalidRegexException;
+import gtp.atp.model.EvictionPolicy;
 import gtp.atp.model.RegexHistory;
 import gtp.atp.util.RegexUtils;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Manages a collection of regular expression patterns and their usage history.
  * Provides functionality to track, retrieve, and analyze pattern usage statistics.
+ *
+ * <p>The manager is thread-safe: batch workers may record usage concurrently with each other and
+ * with the user interface. Without a store, recording an already known pattern takes no lock.
+ *
+ * <p>A manager built with a {@link RegexHistoryStore} starts from the stored history and appends
+ * every change to the store's journal, compacting it when it grows. Changes may then run concurrently
+ * with each other but not with a compaction, and their journal records are written one at a time.
+ * Failing to write to the store is logged and does not affect the history kept in memory.
+ * {@link #close()} closes the store once the manager is no longer needed.
+ *
+ * <p>Two indexes are kept up to date as usage is recorded: one ordered by last use and one ordered
+ * by usage count. Recent, last-used and top-used queries walk an index from its head instead of
+ * sorting every entry, costing O(log n + k) for k results. Under concurrent updates an index may
+ * briefly hold an outdated key for a pattern; queries skip such keys and drop them. Usage changed
+ * directly on a {@link RegexHistory}, rather than through the manager, is picked up when a query
+ * meets the outdated key or the pattern is next recorded.
+ *
+ * <p>Pattern searches use a {@link PatternSearchIndex}, updated whenever a pattern is added or
+ * removed. Selective queries are answered from its trigram index; queries too short or too common
+ * to narrow the candidates much walk the recency index instead, which yields results already
+ * ordered and can stop as soon as enough are found.
+ *
+ * <p>The history can be bounded. Once it holds more patterns than its capacity, recording a new
+ * pattern evicts the entry ranked lowest by the {@link EvictionPolicy}, taken from the head of the
+ * matching index, and a policy with a time to live expires a few of the oldest unused entries on
+ * every use. Evicted entries are removed from the store as well, and reported to the registered
+ * {@link EvictionListener}s. A use recorded at the very moment its pattern is evicted may be lost
+ * with it.
  */
 public class RegexHistoryManager {
-    private final Map<String, RegexHistory> regexHistoryMap = new HashMap<>();
+    private static final Logger LOGGER = Logger.getLogger(RegexHistoryManager.class.getName());
 
+    /**
+     * A pattern search walks the recency index instead of the search index when the search index
+     * cannot rule out more than all but this fraction of the patterns.
+     */
+    private static final int BROAD_QUERY_FRACTION = 8;
+
+    /**
+     * Most expired entries removed while recording a single use, so no use pays for a long sweep.
+     */
+    private static final int EXPIRY_BATCH = 4;
+
+    private final ConcurrentMap<String, RegexHistory> regexHistoryMap;
+    private final RegexHistoryStore store;
+    private final ReadWriteLock storeLock = new ReentrantReadWriteLock();
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentSkipListMap<RecencyKey, RegexHistory> recencyIndex = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, RecencyKey> recencyKeys = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<UsageKey> usageIndex = new ConcurrentSkipListSet<>();
+    private final PatternSearchIndex searchIndex = new PatternSearchIndex();
+
+    private final int capacity;
+    private final EvictionPolicy evictionPolicy;
+    private final Lock evictionLock = new ReentrantLock();
+    private final List<EvictionListener> evictionListeners = new CopyOnWriteArrayList<>();
+    private final LongAdder capacityEvictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * Constructs a manager that keeps its history in memory only, without bound.
+     */
+    public RegexHistoryManager() {
+        this(Integer.MAX_VALUE, EvictionPolicy.lru());
+    }
+
+    /**
+     * Constructs a manager that keeps a bounded history in memory only.
+     *
+     * @param capacity the most patterns the history holds
+     * @param evictionPolicy the policy choosing which entries to drop (cannot be null)
+     * @throws IllegalArgumentException if capacity is not positive
+     * @throws NullPointerException if evictionPolicy is null
+     */
+    public RegexHistoryManager(int capacity, EvictionPolicy evictionPolicy) {
+        this.capacity = validateCapacity(capacity);
+        this.evictionPolicy = Objects.requireNonNull(evictionPolicy, "Eviction policy cannot be null");
+        this.regexHistoryMap = new ConcurrentHashMap<>();
+        this.store = null;
+    }
+
+    /**
+     * Constructs a manager that loads its history from a store and persists every change to it.
+     *
+     * @param store the store holding the history (cannot be null); it is closed if loading fails
+     * @throws IOException if the stored history cannot be loaded
+     * @throws NullPointerException if store is null
+     */
+    public RegexHistoryManager(RegexHistoryStore store) throws IOException {
+        this(store, Integer.MAX_VALUE, EvictionPolicy.lru());
+    }
+
+    /**
+     * Constructs a manager that loads a bounded history from a store and persists every change to it.
+     * Stored entries beyond the capacity, or already expired, are evicted once loaded.
+     *
+     * @param store the store holding the history (cannot be null); it is closed if loading fails
+     * @param capacity the most patterns the history holds
+     * @param evictionPolicy the policy choosing which entries to drop (cannot be null)
+     * @throws IOException if the stored history cannot be loaded
+     * @throws IllegalArgumentException if capacity is not positive
+     * @throws NullPointerException if store or evictionPolicy is null
+     */
+    public RegexHistoryManager(RegexHistoryStore store, int capacity, EvictionPolicy evictionPolicy) throws IOException {
+        this.store = Objects.requireNonNull(store, "History store cannot be null");
+        this.capacity = validateCapacity(capacity);
+        this.evictionPolicy = Objects.requireNonNull(evictionPolicy, "Eviction policy cannot be null");
+        try {
+            this.regexHistoryMap = store.load();
+        } catch (IOException e) {
+            store.close();
+            throw e;
+        }
+        regexHistoryMap.forEach((regex, history) -> {
+            usageIndex.add(new UsageKey(history.getUsageCount(), regex));
+            indexRecency(regex, history);
+            searchIndex.add(regex);
+        });
+        expireAll();
+        evictionLock.lock();
+        try {
+            evictOverCapacity(null, new ArrayList<>());
+        } finally {
+            evictionLock.unlock();
+        }
+        compactIfNeeded();
+    }
+
+    private static int validateCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        return capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
 
     public Map<String, RegexHistory> getHistoryMap() {
         return Collections.unmodifiableMap(regexHistoryMap);
@@ -37,13 +192,122 @@ public class RegexHistoryManager {
      */
     public void recordPatternUsage(String regex) throws InvalidRegexException {
         RegexUtils.isValidRegex(regex);
+        recordValidatedPatternUsage(regex);
+    }
+
+    /**
+     * Records usage of a pattern that the caller has already compiled successfully,
+     * skipping the syntax check.
+     *
+     * @param regex the validated regular expression pattern to record
+     */
+    void recordValidatedPatternUsage(String regex) {
+        record(regex);
+    }
+
+    private RegexHistory record(String regex) {
+        if (store == null) {
+            RegexHistory history = recordInMemory(regex);
+            notifyEvicted(enforceLimits(regex));
+            return history;
+        }
+
+        RegexHistory history;
+        List<Eviction> evicted;
+        storeLock.readLock().lock();
+        try {
+            RegexHistory recorded = recordInMemory(regex);
+            persist(() -> store.appendUse(regex, recorded.getTimestamp()));
+            history = recorded;
+            evicted = enforceLimits(regex);
+        } finally {
+            storeLock.readLock().unlock();
+        }
+        compactIfNeeded();
+        notifyEvicted(evicted);
+        return history;
+    }
 
+    /**
+     * Creates the history of a pattern on first use and increments it on every later use.
+     * When several threads record a new pattern at once, exactly one creates it and the others increment it.
+     */
+    private RegexHistory recordInMemory(String regex) {
         RegexHistory history = regexHistoryMap.get(regex);
         if (history == null) {
-            history = new RegexHistory(regex);
-            regexHistoryMap.put(regex, history);
-        } else {
-            history.incrementUsage();
+            RegexHistory created = new RegexHistory(regex);
+            history = regexHistoryMap.putIfAbsent(regex, created);
+            if (history == null) {
+                usageIndex.add(new UsageKey(created.getUsageCount(), regex));
+                indexRecency(regex, created);
+                updateSearchIndex(regex);
+                return created;
+            }
+        }
+        int count = history.recordUse(LocalDateTime.now());
+        // The new key goes in before the old one comes out, so the pattern never drops out of the index
+        usageIndex.add(new UsageKey(count, regex));
+        usageIndex.remove(new UsageKey(count - 1, regex));
+        indexRecency(regex, history);
+        return history;
+    }
+
+    private void putInMemory(String regex, RegexHistory history) {
+        RegexHistory previous = regexHistoryMap.put(regex, history);
+        if (previous != null) {
+            usageIndex.remove(new UsageKey(previous.getUsageCount(), regex));
+        }
+        usageIndex.add(new UsageKey(history.getUsageCount(), regex));
+        indexRecency(regex, history);
+        if (previous == null) {
+            updateSearchIndex(regex);
+        }
+    }
+
+    private RegexHistory removeInMemory(String regex) {
+        RegexHistory removed = regexHistoryMap.remove(regex);
+        if (removed != null) {
+            unindex(regex, removed);
+        }
+        return removed;
+    }
+
+    private void unindex(String regex, RegexHistory removed) {
+        RecencyKey key = recencyKeys.remove(regex);
+        if (key != null) {
+            recencyIndex.remove(key);
+        }
+        usageIndex.remove(new UsageKey(removed.getUsageCount(), regex));
+        updateSearchIndex(regex);
+    }
+
+    private void clearInMemory() {
+        regexHistoryMap.clear();
+        recencyIndex.clear();
+        recencyKeys.clear();
+        usageIndex.clear();
+        searchIndex.clear();
+    }
+
+    /**
+     * Adds a pattern to the search index or removes it, depending on whether it is tracked when the
+     * index applies the change, so concurrent additions and removals cannot leave it out of step.
+     */
+    private void updateSearchIndex(String regex) {
+        searchIndex.update(regex, () -> regexHistoryMap.containsKey(regex));
+    }
+
+    /**
+     * Files a pattern under its current timestamp in the recency index, replacing its previous key.
+     * The new key is published before it becomes the pattern's current key, so every key replaced
+     * is removed by the thread that replaced it.
+     */
+    private void indexRecency(String regex, RegexHistory history) {
+        RecencyKey key = new RecencyKey(history.getTimestamp(), sequence.incrementAndGet(), regex);
+        recencyIndex.put(key, history);
+        RecencyKey previous = recencyKeys.put(regex, key);
+        if (previous != null) {
+            recencyIndex.remove(previous);
         }
     }
 
@@ -54,24 +318,10 @@ public class RegexHistoryManager {
      * @return the RegexHistory object if pattern is valid, null otherwise
      */
     public RegexHistory tryRecordPatternUsage(String regex) {
-        System.out.println("Attempting to record pattern: " + regex); // Debug
-
-
         if (!RegexUtils.isRegexValid(regex)) {
             return null;
         }
-
-        RegexHistory history = regexHistoryMap.get(regex);
-        if (history == null) {
-            System.out.println("Creating new history entry for: " + regex);
-            history = new RegexHistory(regex);
-            regexHistoryMap.put(regex, history);
-        } else {
-            System.out.println("Updating existing entry for: " + regex);
-            history.incrementUsage();
-        }
-
-        return history;
+        return record(regex);
     }
 
     /**
@@ -89,7 +339,22 @@ public class RegexHistoryManager {
 
         RegexUtils.isValidRegex(regex);
 
-        regexHistoryMap.put(regex, regexHistory);
+        if (store == null) {
+            putInMemory(regex, regexHistory);
+            notifyEvicted(enforceLimits(regex));
+            return;
+        }
+        List<Eviction> evicted;
+        storeLock.readLock().lock();
+        try {
+            putInMemory(regex, regexHistory);
+            persist(() -> store.appendPut(regexHistory));
+            evicted = enforceLimits(regex);
+        } finally {
+            storeLock.readLock().unlock();
+        }
+        compactIfNeeded();
+        notifyEvicted(evicted);
     }
 
     /**
@@ -98,7 +363,19 @@ public class RegexHistoryManager {
      * @param regex the regular expression pattern to remove
      */
     public RegexHistory removeRegexHistory(String regex) {
-        return regexHistoryMap.remove(regex);
+        if (store == null) {
+            return removeInMemory(regex);
+        }
+        storeLock.readLock().lock();
+        try {
+            RegexHistory removed = removeInMemory(regex);
+            if (removed != null) {
+                persist(() -> store.appendRemove(regex));
+            }
+            return removed;
+        } finally {
+            storeLock.readLock().unlock();
+        }
     }
 
     /**
@@ -114,7 +391,275 @@ public class RegexHistoryManager {
      * Clears all pattern usage history.
      */
     public void clearRegexHistoryList() {
-        regexHistoryMap.clear();
+        if (store == null) {
+            clearInMemory();
+            return;
+        }
+        storeLock.writeLock().lock();
+        try {
+            clearInMemory();
+            persist(() -> store.compact(List.of()));
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Closes the store the history is persisted to, if any, once pending writes are done.
+     * The history stays readable in memory; later changes are no longer persisted, and failing
+     * to persist them is logged.
+     *
+     * @throws IOException if the store cannot be closed
+     */
+    public void close() throws IOException {
+        if (store == null) {
+            return;
+        }
+        storeLock.writeLock().lock();
+        try {
+            store.close();
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Registers a listener told about every entry evicted from now on.
+     *
+     * @param listener the listener to add (cannot be null)
+     * @throws NullPointerException if listener is null
+     */
+    public void addEvictionListener(EvictionListener listener) {
+        evictionListeners.add(Objects.requireNonNull(listener, "Eviction listener cannot be null"));
+    }
+
+    /**
+     * Unregisters an eviction listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeEvictionListener(EvictionListener listener) {
+        evictionListeners.remove(listener);
+    }
+
+    /**
+     * Gets the number of entries evicted for any cause since the manager was created.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return capacityEvictions.sum() + expirations.sum();
+    }
+
+    /**
+     * Gets the number of entries evicted for the given cause since the manager was created.
+     *
+     * @param cause the cause to count (cannot be null)
+     * @return the eviction count
+     * @throws NullPointerException if cause is null
+     */
+    public long getEvictionCount(EvictionCause cause) {
+        return switch (Objects.requireNonNull(cause, "Eviction cause cannot be null")) {
+            case CAPACITY -> capacityEvictions.sum();
+            case EXPIRED -> expirations.sum();
+        };
+    }
+
+    /**
+     * Evicts every entry that has gone unused for longer than the policy's time to live.
+     * Recording usage only expires a few entries at a time, so a history that is rarely
+     * used can call this to drop all of its stale entries at once.
+     *
+     * @return the number of entries evicted
+     */
+    public int evictExpired() {
+        return expireAll();
+    }
+
+    /**
+     * Evicts every expired entry; kept private so the constructor does not call an overridable method.
+     */
+    private int expireAll() {
+        if (!evictionPolicy.expires()) {
+            return 0;
+        }
+        List<Eviction> evicted = new ArrayList<>();
+        if (store != null) {
+            storeLock.readLock().lock();
+        }
+        evictionLock.lock();
+        try {
+            expire(null, Integer.MAX_VALUE, evicted);
+        } finally {
+            evictionLock.unlock();
+            if (store != null) {
+                storeLock.readLock().unlock();
+            }
+        }
+        if (store != null) {
+            compactIfNeeded();
+        }
+        notifyEvicted(evicted);
+        return evicted.size();
+    }
+
+    /**
+     * Expires a batch of stale entries and brings the history back within its capacity, sparing
+     * the pattern just recorded. Each entry is evicted at most once, so the work is constant per
+     * use on average; only threads adding a pattern, or finding stale entries, take the eviction lock.
+     * Must be called while holding the store's read lock when there is a store.
+     */
+    private List<Eviction> enforceLimits(String keep) {
+        boolean expiring = evictionPolicy.expires() && hasExpired();
+        if (!expiring && regexHistoryMap.size() <= capacity) {
+            return List.of();
+        }
+
+        List<Eviction> evicted = new ArrayList<>();
+        if (expiring && evictionLock.tryLock()) {
+            try {
+                expire(keep, EXPIRY_BATCH, evicted);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        if (regexHistoryMap.size() > capacity) {
+            evictionLock.lock();
+            try {
+                evictOverCapacity(keep, evicted);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        return evicted;
+    }
+
+    private boolean hasExpired() {
+        Map.Entry<RecencyKey, RegexHistory> oldest = recencyIndex.firstEntry();
+        return oldest != null && oldest.getKey().time().isBefore(expiryCutoff());
+    }
+
+    private LocalDateTime expiryCutoff() {
+        return LocalDateTime.now().minus(evictionPolicy.timeToLive());
+    }
+
+    private void expire(String keep, int limit, List<Eviction> evicted) {
+        LocalDateTime cutoff = expiryCutoff();
+        int expired = 0;
+        for (Map.Entry<RecencyKey, RegexHistory> entry : recencyIndex.entrySet()) {
+            RecencyKey key = entry.getKey();
+            if (expired == limit || !key.time().isBefore(cutoff)) {
+                break;
+            }
+            RegexHistory history = entry.getValue();
+            // The timestamp is checked again, as a use may have been recorded but not yet indexed
+            if (!key.pattern().equals(keep) && isCurrent(key, history) && history.getTimestamp().isBefore(cutoff)
+                    && evict(key.pattern(), history, EvictionCause.EXPIRED, evicted)) {
+                expired++;
+            }
+        }
+    }
+
+    private void evictOverCapacity(String keep, List<Eviction> evicted) {
+        while (regexHistoryMap.size() > capacity) {
+            boolean found = evictionPolicy.order() == EvictionPolicy.Order.LEAST_FREQUENTLY_USED
+                    ? evictLeastFrequent(keep, evicted)
+                    : evictLeastRecent(keep, evicted);
+            if (!found) {
+                return;
+            }
+        }
+    }
+
+    private boolean evictLeastRecent(String keep, List<Eviction> evicted) {
+        for (Map.Entry<RecencyKey, RegexHistory> entry : recencyIndex.entrySet()) {
+            RecencyKey key = entry.getKey();
+            if (!key.pattern().equals(keep) && isCurrent(key, entry.getValue())) {
+                evict(key.pattern(), entry.getValue(), EvictionCause.CAPACITY, evicted);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean evictLeastFrequent(String keep, List<Eviction> evicted) {
+        for (UsageKey key : usageIndex.descendingSet()) {
+            if (key.pattern().equals(keep)) {
+                continue;
+            }
+            RegexHistory history = currentEntry(key);
+            if (history != null) {
+                evict(key.pattern(), history, EvictionCause.CAPACITY, evicted);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes an entry unless it was replaced or removed meanwhile, and records the eviction.
+     */
+    private boolean evict(String regex, RegexHistory history, EvictionCause cause, List<Eviction> evicted) {
+        if (!regexHistoryMap.remove(regex, history)) {
+            return false;
+        }
+        unindex(regex, history);
+        if (store != null) {
+            persist(() -> store.appendRemove(regex));
+        }
+        (cause == EvictionCause.CAPACITY ? capacityEvictions : expirations).increment();
+        evicted.add(new Eviction(history, cause));
+        return true;
+    }
+
+    /**
+     * Tells the listeners about evicted entries, once no lock is held. A failing listener is
+     * logged and does not keep the others from being told.
+     */
+    private void notifyEvicted(List<Eviction> evicted) {
+        for (Eviction eviction : evicted) {
+            for (EvictionListener listener : evictionListeners) {
+                try {
+                    listener.evicted(eviction.history(), eviction.cause());
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Eviction listener failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rewrites the store's snapshot once its journal has grown long enough, holding off other
+     * changes so the snapshot and the emptied journal describe the same history.
+     */
+    private void compactIfNeeded() {
+        if (!store.needsCompaction(regexHistoryMap.size())) {
+            return;
+        }
+        storeLock.writeLock().lock();
+        try {
+            if (store.needsCompaction(regexHistoryMap.size())) {
+                persist(() -> store.compact(new ArrayList<>(regexHistoryMap.values())));
+            }
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+    }
+
+    private static void persist(StoreWrite write) {
+        try {
+            write.run();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not persist regex history", e);
+        }
+    }
+
+    /**
+     * A write to the history store.
+     */
+    @FunctionalInterface
+    private interface StoreWrite {
+        void run() throws IOException;
     }
 
     /**
@@ -129,25 +674,44 @@ public class RegexHistoryManager {
             throw new IllegalArgumentException("limit must be greater than 0");
         }
 
-        if (limit > regexHistoryMap.size()) {
-            limit = regexHistoryMap.size();
+        List<RegexHistory> recent = new ArrayList<>(Math.min(limit, regexHistoryMap.size()));
+        for (Map.Entry<RecencyKey, RegexHistory> entry : recencyIndex.descendingMap().entrySet()) {
+            if (isCurrent(entry.getKey(), entry.getValue())) {
+                recent.add(entry.getValue());
+                if (recent.size() == limit) {
+                    break;
+                }
+            }
         }
-
-        return regexHistoryMap.values()
-                .stream()
-                .sorted(Comparator.comparing(RegexHistory::getTimestamp).reversed())
-                .limit(limit)
-                .collect(Collectors.toList());
+        return recent;
     }
 
+    /**
+     * Gets the most recently used pattern.
+     *
+     * @return the RegexHistory with the latest timestamp, or null if no history exists
+     */
     public RegexHistory getLastUsed() {
-        if (regexHistoryMap.isEmpty()) {
-            return null;
+        for (Map.Entry<RecencyKey, RegexHistory> entry : recencyIndex.descendingMap().entrySet()) {
+            if (isCurrent(entry.getKey(), entry.getValue())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks that a recency key still belongs to a tracked entry, dropping it if the entry was removed.
+     * A key whose entry is still being indexed is not yet the pattern's current key and is left alone.
+     */
+    private boolean isCurrent(RecencyKey key, RegexHistory history) {
+        if (regexHistoryMap.get(key.pattern()) == history) {
+            return true;
+        }
+        if (recencyKeys.remove(key.pattern(), key)) {
+            recencyIndex.remove(key);
         }
-        return regexHistoryMap.values()
-                .stream()
-                .max(Comparator.comparing(RegexHistory::getTimestamp))
-                .orElse(null);
+        return false;
     }
 
     /**
@@ -157,15 +721,85 @@ public class RegexHistoryManager {
      * @throws IllegalArgumentException if substring is null or empty
      */
     public List<RegexHistory> searchPatterns(String substring) {
+        return searchPatterns(substring, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets the most recently used patterns containing the given substring, ignoring case.
+     *
+     * @param substring the text to search for in patterns
+     * @param limit maximum number of patterns to return
+     * @return list of matching patterns sorted by most recent use
+     * @throws IllegalArgumentException if substring is null or empty, or limit is not positive
+     */
+    public List<RegexHistory> searchPatterns(String substring, int limit) {
         if (substring == null || substring.trim().isEmpty()) {
             throw new IllegalArgumentException("Substring cannot be null or empty");
         }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be greater than 0");
+        }
 
-        String searchTerm = substring.toLowerCase();
-        return regexHistoryMap.values().stream()
-                .filter(history -> history.getPattern().toLowerCase().contains(searchTerm))
-                .sorted(Comparator.comparing(RegexHistory::getTimestamp).reversed())
-                .collect(Collectors.toList());
+        String searchTerm = PatternSearchIndex.lowerCase(substring);
+        // A walk in recency order needs no sorting and stops at the limit, so it wins for broad queries
+        if (searchTerm.length() < PatternSearchIndex.GRAM_LENGTH
+                || searchIndex.candidateBound(searchTerm) > regexHistoryMap.size() / BROAD_QUERY_FRACTION) {
+            return searchRecent(history -> PatternSearchIndex.lowerCase(history.getPattern()).contains(searchTerm), limit);
+        }
+        return sortByRecency(searchIndex.findContaining(searchTerm), limit);
+    }
+
+    /**
+     * Gets the most recently used patterns starting with the given prefix, ignoring case.
+     *
+     * @param prefix the text the patterns must start with
+     * @param limit maximum number of patterns to return
+     * @return list of matching patterns sorted by most recent use
+     * @throws IllegalArgumentException if prefix is null or empty, or limit is not positive
+     */
+    public List<RegexHistory> searchPatternsByPrefix(String prefix, int limit) {
+        if (prefix == null || prefix.isEmpty()) {
+            throw new IllegalArgumentException("Prefix cannot be null or empty");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be greater than 0");
+        }
+        String searchTerm = PatternSearchIndex.lowerCase(prefix);
+        if (searchTerm.length() < PatternSearchIndex.GRAM_LENGTH) {
+            return searchRecent(history -> PatternSearchIndex.lowerCase(history.getPattern()).startsWith(searchTerm), limit);
+        }
+        return sortByRecency(searchIndex.findByPrefix(searchTerm), limit);
+    }
+
+    private List<RegexHistory> searchRecent(Predicate<RegexHistory> filter, int limit) {
+        List<RegexHistory> found = new ArrayList<>();
+        for (Map.Entry<RecencyKey, RegexHistory> entry : recencyIndex.descendingMap().entrySet()) {
+            if (isCurrent(entry.getKey(), entry.getValue()) && filter.test(entry.getValue())) {
+                found.add(entry.getValue());
+                if (found.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    private List<RegexHistory> sortByRecency(List<String> patterns, int limit) {
+        // Uses recorded meanwhile change the timestamps, so sort on a copy read once per entry
+        List<TimestampedHistory> found = new ArrayList<>(patterns.size());
+        for (String pattern : patterns) {
+            RegexHistory history = regexHistoryMap.get(pattern);
+            if (history != null) {
+                found.add(new TimestampedHistory(history.getTimestamp(), history));
+            }
+        }
+        found.sort(Comparator.comparing(TimestampedHistory::timestamp).reversed());
+
+        List<RegexHistory> sorted = new ArrayList<>(Math.min(limit, found.size()));
+        for (int i = 0; i < found.size() && i < limit; i++) {
+            sorted.add(found.get(i).history());
+        }
+        return sorted;
     }
 
     /**
@@ -175,19 +809,121 @@ public class RegexHistoryManager {
      * - Returns multiple patterns if they share the highest count.
      */
     public List<RegexHistory> getTopUsedHistory() {
-        if (regexHistoryMap.isEmpty()) {
-            return Collections.emptyList();
+        List<RegexHistory> top = new ArrayList<>();
+        int topCount = -1;
+        for (UsageKey key : usageIndex) {
+            RegexHistory history = currentEntry(key);
+            if (history == null) {
+                continue;
+            }
+            if (topCount < 0) {
+                topCount = key.count();
+            } else if (key.count() != topCount) {
+                break;
+            }
+            top.add(history);
+        }
+        return top;
+    }
+
+    /**
+     * Gets the most frequently used patterns, ordered by usage count from highest to lowest,
+     * with patterns of equal count in alphabetical order.
+     *
+     * @param limit maximum number of patterns to return
+     * @return list of the most used RegexHistory objects
+     * @throws IllegalArgumentException if limit is not positive
+     */
+    public List<RegexHistory> getTopUsedHistory(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be greater than 0");
         }
 
-        int maxUsage = regexHistoryMap.values()
-                .stream()
-                .mapToInt(RegexHistory::getUsageCount)
-                .max()
-                .orElse(0);
+        List<RegexHistory> top = new ArrayList<>(Math.min(limit, regexHistoryMap.size()));
+        for (UsageKey key : usageIndex) {
+            RegexHistory history = currentEntry(key);
+            if (history != null) {
+                top.add(history);
+                if (top.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return top;
+    }
 
-        return regexHistoryMap.values()
-                .stream()
-                .filter(history -> history.getUsageCount() == maxUsage)
-                .collect(Collectors.toList());
+    /**
+     * Returns the entry a usage key describes, or null if the key is outdated. An outdated key is
+     * replaced by one carrying the entry's current count, which may already be in the index.
+     */
+    private RegexHistory currentEntry(UsageKey key) {
+        RegexHistory history = regexHistoryMap.get(key.pattern());
+        if (history == null) {
+            usageIndex.remove(key);
+            return null;
+        }
+        int count = history.getUsageCount();
+        if (count != key.count()) {
+            usageIndex.add(new UsageKey(count, key.pattern()));
+            usageIndex.remove(key);
+            return null;
+        }
+        return history;
+    }
+
+    /**
+     * Why an entry was evicted.
+     */
+    public enum EvictionCause {
+        /** The history was over capacity and the entry ranked lowest by the eviction policy. */
+        CAPACITY,
+        /** The entry went unused for longer than the eviction policy's time to live. */
+        EXPIRED
+    }
+
+    /**
+     * Receives the entries evicted from a history, after they have been removed from it and from its store.
+     * Listeners are called on the thread that caused the eviction, which may be a worker thread.
+     */
+    @FunctionalInterface
+    public interface EvictionListener {
+        /**
+         * Called once for every evicted entry.
+         *
+         * @param history the evicted entry
+         * @param cause why it was evicted
+         */
+        void evicted(RegexHistory history, EvictionCause cause);
+    }
+
+    private record Eviction(RegexHistory history, EvictionCause cause) {
+    }
+
+    /**
+     * An entry with its last-use time as read when a search collected it.
+     */
+    private record TimestampedHistory(LocalDateTime timestamp, RegexHistory history) {
+    }
+
+    /**
+     * Orders the recency index by last use, with ties broken by the order in which uses were indexed.
+     */
+    private record RecencyKey(LocalDateTime time, long sequence, String pattern) implements Comparable<RecencyKey> {
+        @Override
+        public int compareTo(RecencyKey other) {
+            int byTime = time.compareTo(other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Orders the usage index by count from highest to lowest, then by pattern.
+     */
+    private record UsageKey(int count, String pattern) implements Comparable<UsageKey> {
+        @Override
+        public int compareTo(UsageKey other) {
+            int byCount = Integer.compare(other.count, count);
+            return byCount != 0 ? byCount : pattern.compareTo(other.pattern);
+        }
     }
 }
@@ -0,0 +1,488 @@
+package gtp.atp.service;
+
+import gtp.atp.model.RegexHistory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Keeps regex usage history on disk as a snapshot file plus an append-only journal.
+ * Every change is appended to the journal as one checksummed record; from time to time the whole
+ * history is compacted into a new snapshot and the journal starts over. Loading maps the snapshot
+ * into memory, reads it in one pass and replays the journal on top.
+ *
+ * <p>Both files carry a generation number. A compaction writes the snapshot of the next generation
+ * to a temporary file, moves it into place atomically and only then resets the journal, so a crash
+ * at any point leaves either the old snapshot with its journal or the new snapshot with a journal
+ * that is recognised as stale and ignored. A record cut short by a crash, or failing its checksum,
+ * ends the replay and is cut off the journal; everything before it is kept.
+ *
+ * <p>An open store holds an exclusive lock on a lock file in its directory until it is closed, so a
+ * second store, in this process or another, cannot open the same directory and interleave its
+ * records with this one's. The store is not usable until {@link #load()} has been called once.
+ * Journal records are written straight to the file channel without forcing them to the device,
+ * so they survive the process exiting but not necessarily the machine losing power.
+ * Timestamps are stored to the millisecond as local date-times.
+ */
+public class RegexHistoryStore implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(RegexHistoryStore.class.getName());
+
+    /**
+     * Default number of journal records after which {@link #needsCompaction(int)} asks for a compaction.
+     */
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 10_000;
+
+    private static final String SNAPSHOT_FILE = "history.snapshot";
+    private static final String SNAPSHOT_TEMP_FILE = "history.snapshot.tmp";
+    private static final String JOURNAL_FILE = "history.journal";
+    private static final String LOCK_FILE = "history.lock";
+
+    private static final int SNAPSHOT_MAGIC = 0x41545053; // "ATPS"
+    private static final int JOURNAL_MAGIC = 0x4154504A;  // "ATPJ"
+    private static final int VERSION = 1;
+    private static final int SNAPSHOT_HEADER_BYTES = 4 + 4 + 8 + 4;
+    private static final int JOURNAL_HEADER_BYTES = 4 + 4 + 8;
+
+    // Journal record: length, then type, timestamp, count and pattern bytes, then CRC32 of those
+    private static final int RECORD_FIXED_BYTES = 1 + 8 + 4;
+    private static final int MAX_PATTERN_BYTES = 1 << 20;
+
+    private static final byte USE = 1;
+    private static final byte PUT = 2;
+    private static final byte REMOVE = 3;
+
+    private final Path directory;
+    private final int compactionThreshold;
+    private final FileChannel journal;
+    private final FileChannel lockChannel;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer recordBuffer = ByteBuffer.allocate(256);
+    private long generation;
+    private int journalRecords;
+    private boolean loaded;
+
+    private RegexHistoryStore(Path directory, int compactionThreshold, FileChannel journal, FileChannel lockChannel) {
+        this.directory = directory;
+        this.compactionThreshold = compactionThreshold;
+        this.journal = journal;
+        this.lockChannel = lockChannel;
+    }
+
+    /**
+     * Opens the store kept in a directory, creating the directory if needed, with the default compaction threshold.
+     *
+     * @param directory the directory holding the snapshot and journal files (cannot be null)
+     * @return the open store, positioned to append to the journal
+     * @throws IOException if the directory or journal cannot be opened, or another store holds the directory
+     * @throws NullPointerException if directory is null
+     */
+    public static RegexHistoryStore open(Path directory) throws IOException {
+        return open(directory, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Opens the store kept in a directory, creating the directory if needed.
+     *
+     * @param directory the directory holding the snapshot and journal files (cannot be null)
+     * @param compactionThreshold the minimum number of journal records before compaction is due
+     * @return the open store, positioned to append to the journal
+     * @throws IOException if the directory or journal cannot be opened, or another store holds the directory
+     * @throws NullPointerException if directory is null
+     * @throws IllegalArgumentException if compactionThreshold is not positive
+     */
+    public static RegexHistoryStore open(Path directory, int compactionThreshold) throws IOException {
+        Objects.requireNonNull(directory, "Directory cannot be null");
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("compactionThreshold must be greater than 0");
+        }
+        Files.createDirectories(directory);
+        FileChannel lockChannel = lock(directory);
+        try {
+            FileChannel journal = FileChannel.open(directory.resolve(JOURNAL_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new RegexHistoryStore(directory, compactionThreshold, journal, lockChannel);
+        } catch (IOException e) {
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the directory's lock file and takes an exclusive lock on it, which lasts until the
+     * returned channel is closed.
+     */
+    private static FileChannel lock(Path directory) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by another store of this process
+            lock = null;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("Regex history is already in use: " + directory);
+        }
+        return channel;
+    }
+
+    /**
+     * Loads the stored history: the snapshot, then every intact journal record of the same generation.
+     * A damaged or stale journal tail is discarded, and the journal is left ready for appending.
+     *
+     * @return a new concurrent map of the stored histories keyed by pattern, owned by the caller
+     * @throws IOException if a file cannot be read, or the snapshot is damaged
+     */
+    public synchronized ConcurrentMap<String, RegexHistory> load() throws IOException {
+        Snapshot snapshot = readSnapshot();
+        ConcurrentMap<String, RegexHistory> histories = snapshot.histories();
+        generation = snapshot.generation();
+        journalRecords = 0;
+
+        long size = journal.size();
+        if (size < JOURNAL_HEADER_BYTES || !journalMatches(generation)) {
+            if (size > 0) {
+                LOGGER.warning("Discarding regex history journal that does not belong to the current snapshot");
+            }
+            resetJournal(generation);
+        } else {
+            long end = replayJournal(histories, size);
+            if (end < size) {
+                LOGGER.warning(() -> String.format("Discarding %d damaged bytes at the end of the regex history journal",
+                        size - end));
+                journal.truncate(end);
+            }
+            journal.position(end);
+        }
+        loaded = true;
+        return histories;
+    }
+
+    /**
+     * Appends one use of a pattern to the journal.
+     *
+     * @param pattern the pattern that was used (cannot be null)
+     * @param time the time of the use (cannot be null)
+     * @throws IOException if the record cannot be written
+     * @throws IllegalStateException if the store has not been loaded
+     */
+    public synchronized void appendUse(String pattern, LocalDateTime time) throws IOException {
+        appendRecord(USE, pattern, time, 1);
+    }
+
+    /**
+     * Appends a history entry that replaces any stored history of its pattern.
+     *
+     * @param history the entry to store (cannot be null)
+     * @throws IOException if the record cannot be written
+     * @throws IllegalStateException if the store has not been loaded
+     */
+    public synchronized void appendPut(RegexHistory history) throws IOException {
+        appendRecord(PUT, history.getPattern(), history.getTimestamp(), history.getUsageCount());
+    }
+
+    /**
+     * Appends the removal of a pattern's history.
+     *
+     * @param pattern the pattern whose history was removed (cannot be null)
+     * @throws IOException if the record cannot be written
+     * @throws IllegalStateException if the store has not been loaded
+     */
+    public synchronized void appendRemove(String pattern) throws IOException {
+        appendRecord(REMOVE, pattern, LocalDateTime.now(), 0);
+    }
+
+    /**
+     * Checks whether the journal has grown enough to be worth compacting: past the compaction
+     * threshold and longer than the history it describes.
+     *
+     * @param entries the number of entries in the history
+     * @return true if {@link #compact(Collection)} should be called
+     */
+    public synchronized boolean needsCompaction(int entries) {
+        return journalRecords >= Math.max(compactionThreshold, entries);
+    }
+
+    /**
+     * Replaces the snapshot with the given histories and empties the journal. The caller must make
+     * sure no change is made to the histories, or appended, while the compaction runs.
+     *
+     * @param histories the complete current history (cannot be null)
+     * @throws IOException if the new snapshot cannot be written; the previous files are then left in use,
+     *         and compaction is not due again until the journal has grown by another threshold
+     * @throws IllegalStateException if the store has not been loaded
+     */
+    public synchronized void compact(Collection<RegexHistory> histories) throws IOException {
+        checkLoaded();
+        long next = generation + 1;
+        Path temp = directory.resolve(SNAPSHOT_TEMP_FILE);
+        try {
+            writeSnapshot(temp, histories, next);
+            Files.move(temp, directory.resolve(SNAPSHOT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            // Wait for another threshold's worth of records rather than retrying on every append
+            journalRecords = 0;
+            throw e;
+        }
+        generation = next;
+        resetJournal(next);
+        LOGGER.fine(() -> String.format("Compacted regex history into %d entries (generation %d)",
+                histories.size(), next));
+    }
+
+    /**
+     * Forces the journal to the storage device, closes it and releases the directory's lock.
+     *
+     * @throws IOException if the journal cannot be forced or closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (journal.isOpen()) {
+            try (lockChannel; journal) {
+                journal.force(false);
+            }
+        }
+    }
+
+    private Snapshot readSnapshot() throws IOException {
+        Path path = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(path)) {
+            return new Snapshot(0, new ConcurrentHashMap<>());
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Regex history snapshot is too large: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != VERSION) {
+                    throw new IOException("Not a regex history snapshot: " + path);
+                }
+                long snapshotGeneration = buffer.getLong();
+                int count = buffer.getInt();
+
+                // The checksum covers every entry, and is checked before any of them is trusted
+                int entriesEnd = buffer.limit() - 4;
+                CRC32 checksum = new CRC32();
+                checksum.update(buffer.slice(SNAPSHOT_HEADER_BYTES, entriesEnd - SNAPSHOT_HEADER_BYTES));
+                if ((int) checksum.getValue() != buffer.getInt(entriesEnd)) {
+                    throw new IOException("Regex history snapshot is damaged: " + path);
+                }
+
+                // Sized up front, so a large snapshot loads without rehashing
+                ConcurrentMap<String, RegexHistory> histories = new ConcurrentHashMap<>(count);
+                byte[] bytes = new byte[256];
+                for (int i = 0; i < count; i++) {
+                    int usage = buffer.getInt();
+                    long time = buffer.getLong();
+                    int length = buffer.getInt();
+                    if (length > bytes.length) {
+                        bytes = new byte[Math.max(length, bytes.length * 2)];
+                    }
+                    buffer.get(bytes, 0, length);
+                    String pattern = new String(bytes, 0, length, StandardCharsets.UTF_8);
+                    histories.put(pattern, new RegexHistory(pattern, usage, toDateTime(time)));
+                }
+                return new Snapshot(snapshotGeneration, histories);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                throw new IOException("Regex history snapshot is damaged: " + path, e);
+            }
+        }
+    }
+
+    private void writeSnapshot(Path path, Collection<RegexHistory> histories, long snapshotGeneration)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            DataOutputStream header = new DataOutputStream(stream);
+            header.writeInt(SNAPSHOT_MAGIC);
+            header.writeInt(VERSION);
+            header.writeLong(snapshotGeneration);
+            header.writeInt(histories.size());
+
+            CheckedOutputStream checked = new CheckedOutputStream(stream, new CRC32());
+            DataOutputStream entries = new DataOutputStream(checked);
+            for (RegexHistory history : histories) {
+                byte[] pattern = history.getPattern().getBytes(StandardCharsets.UTF_8);
+                entries.writeInt(history.getUsageCount());
+                entries.writeLong(toMillis(history.getTimestamp()));
+                entries.writeInt(pattern.length);
+                entries.write(pattern);
+            }
+            entries.flush();
+            header.writeInt((int) checked.getChecksum().getValue());
+            header.flush();
+            channel.force(true);
+        }
+    }
+
+    private boolean journalMatches(long expectedGeneration) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_BYTES);
+        journal.read(header, 0);
+        header.flip();
+        return header.getInt() == JOURNAL_MAGIC && header.getInt() == VERSION
+                && header.getLong() == expectedGeneration;
+    }
+
+    private void resetJournal(long journalGeneration) throws IOException {
+        journal.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_BYTES)
+                .putInt(JOURNAL_MAGIC).putInt(VERSION).putLong(journalGeneration).flip();
+        writeFully(header, 0);
+        journal.force(false);
+        journal.position(JOURNAL_HEADER_BYTES);
+        journalRecords = 0;
+    }
+
+    /**
+     * Replays the journal records after the header, returning the offset just past the last intact one.
+     */
+    private long replayJournal(Map<String, RegexHistory> histories, long size) throws IOException {
+        // Read rather than mapped, so the damaged tail can be truncated on every platform
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(size));
+        while (buffer.hasRemaining()) {
+            if (journal.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip().position(JOURNAL_HEADER_BYTES);
+        CRC32 checksum = new CRC32();
+        byte[] bytes = new byte[256];
+
+        while (buffer.remaining() >= 4) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length < RECORD_FIXED_BYTES || length > RECORD_FIXED_BYTES + MAX_PATTERN_BYTES
+                    || buffer.remaining() < length + 4) {
+                return start;
+            }
+
+            checksum.reset();
+            checksum.update(buffer.slice(buffer.position(), length));
+            byte type = buffer.get();
+            long time = buffer.getLong();
+            int count = buffer.getInt();
+            int patternLength = length - RECORD_FIXED_BYTES;
+            if (patternLength > bytes.length) {
+                bytes = new byte[Math.max(patternLength, bytes.length * 2)];
+            }
+            buffer.get(bytes, 0, patternLength);
+            if ((int) checksum.getValue() != buffer.getInt()) {
+                return start;
+            }
+
+            String pattern = new String(bytes, 0, patternLength, StandardCharsets.UTF_8);
+            switch (type) {
+                case USE -> {
+                    RegexHistory history = histories.get(pattern);
+                    if (history == null) {
+                        histories.put(pattern, new RegexHistory(pattern, 1, toDateTime(time)));
+                    } else {
+                        history.recordUse(toDateTime(time));
+                    }
+                }
+                case PUT -> histories.put(pattern, new RegexHistory(pattern, count, toDateTime(time)));
+                case REMOVE -> histories.remove(pattern);
+                default -> {
+                    return start;
+                }
+            }
+            journalRecords++;
+        }
+        return buffer.position();
+    }
+
+    private void checkLoaded() {
+        if (!loaded) {
+            throw new IllegalStateException("Regex history must be loaded before it is changed");
+        }
+    }
+
+    private void appendRecord(byte type, String pattern, LocalDateTime time, int count) throws IOException {
+        checkLoaded();
+        Objects.requireNonNull(pattern, "Pattern cannot be null");
+        Objects.requireNonNull(time, "Time cannot be null");
+        byte[] bytes = pattern.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_PATTERN_BYTES) {
+            LOGGER.log(Level.WARNING, "Pattern too long to store in regex history, {0} bytes", bytes.length);
+            return;
+        }
+
+        int length = RECORD_FIXED_BYTES + bytes.length;
+        if (recordBuffer.capacity() < length + 8) {
+            recordBuffer = ByteBuffer.allocate(Math.max(length + 8, recordBuffer.capacity() * 2));
+        }
+        ByteBuffer record = recordBuffer.clear();
+        record.putInt(length).put(type).putLong(toMillis(time)).putInt(count).put(bytes);
+        crc.reset();
+        crc.update(record.array(), 4, length);
+        record.putInt((int) crc.getValue()).flip();
+
+        long position = journal.position();
+        try {
+            writeFully(record, position);
+        } catch (IOException e) {
+            // Drop whatever part of the record was written, so the journal stays readable
+            journal.truncate(position);
+            throw e;
+        }
+        journal.position(position + record.limit());
+        journalRecords++;
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += journal.write(buffer, position);
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * The contents of a snapshot file.
+     */
+    private record Snapshot(long generation, ConcurrentMap<String, RegexHistory> histories) {
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+}
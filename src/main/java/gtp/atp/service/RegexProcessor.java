@@ -1,24 +1,64 @@
 package gtp.atp.service;
 
 import gtp.atp.exception.InvalidRegexException;
+import gtp.atp.exception.RegexBudgetExceededException;
+import gtp.atp.model.ExecutionBudget;
+import gtp.atp.model.MatchResult;
+import gtp.atp.model.MatchSpans;
 import gtp.atp.model.RegexHistory;
+import gtp.atp.model.ReplaceSummary;
+import gtp.atp.util.BudgetedCharSequence;
+import gtp.atp.util.LiteralSearcher;
+import gtp.atp.util.MatchSpliterator;
+import gtp.atp.util.PatternAnalysis;
+import gtp.atp.util.PatternCache;
 import gtp.atp.util.RegexUtils;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * Processes regular expression operations including pattern matching, replacement,
  * and history management. Maintains a history of used patterns and their usage statistics.
+ * The pattern is validated and compiled once at construction, and each thread reuses its own
+ * {@link Matcher}, so repeated calls on a long-lived processor do not parse the pattern again.
+ * Patterns that are plain literals are searched without the regex engine, and inputs lacking a
+ * pattern's required substring are answered without matching.
+ * Operations given an {@link ExecutionBudget} abort with {@link RegexBudgetExceededException} instead
+ * of running indefinitely on a pattern that backtracks catastrophically.
  */
 public class RegexProcessor {
     private final String regex;
+    private final Pattern pattern;
+    private final PatternAnalysis analysis;
+    private final LiteralSearcher literalSearcher;
+    private final ThreadLocal<Matcher> matchers;
     public final RegexHistoryManager historyManager;
 
+    /**
+     * Receives the offsets of each match found by {@link #forEachSpanAndRecord}.
+     */
+    @FunctionalInterface
+    public interface SpanConsumer {
+        /**
+         * Called once per match, in input order.
+         *
+         * @param start the starting index (inclusive) of the match
+         * @param end the ending index (exclusive) of the match
+         */
+        void accept(int start, int end);
+    }
+
     /**
      * Constructs a RegexProcessor with default history manager.
      *
      * @param regex the regular expression pattern to use (cannot be null or empty)
-     * @throws IllegalArgumentException if regex is null or empty
+     * @throws IllegalArgumentException if regex is null, empty or not a valid pattern
      */
     public RegexProcessor(String regex) {
         this(regex, new RegexHistoryManager());
@@ -29,22 +69,87 @@ public class RegexProcessor {
      *
      * @param pattern the regular expression pattern to use (cannot be null or empty)
      * @param historyManager the history manager to track pattern usage (cannot be null)
-     * @throws IllegalArgumentException if pattern is null or empty
+     * @throws IllegalArgumentException if pattern is null, empty or not a valid pattern
      * @throws NullPointerException if historyManager is null
      */
     public RegexProcessor(String pattern, RegexHistoryManager historyManager) {
+        this(pattern, historyManager, RegexUtils.getPatternCache());
+    }
+
+    /**
+     * Constructs a RegexProcessor that compiles its pattern through the given cache instead of the
+     * shared one, so short-lived processors do not evict the patterns other callers reuse.
+     *
+     * @param pattern the regular expression pattern to use (cannot be null or empty)
+     * @param historyManager the history manager to track pattern usage (cannot be null)
+     * @param patternCache the cache to compile the pattern through (cannot be null)
+     * @throws IllegalArgumentException if pattern is null, empty or not a valid pattern
+     * @throws NullPointerException if historyManager or patternCache is null
+     */
+    public RegexProcessor(String pattern, RegexHistoryManager historyManager, PatternCache patternCache) {
         if (pattern == null || pattern.trim().isEmpty()) {
             throw new IllegalArgumentException("Pattern cannot be null or empty");
         }
-        this.regex = pattern;
         this.historyManager = Objects.requireNonNull(historyManager, "History manager cannot be null");
+        Objects.requireNonNull(patternCache, "Pattern cache cannot be null");
+        this.regex = pattern;
+
+        PatternCache.Entry entry;
+        try {
+            entry = patternCache.getEntry(pattern, 0);
+        } catch (IllegalArgumentException e) {
+            InvalidRegexException invalid = new InvalidRegexException(pattern, e);
+            throw new IllegalArgumentException(invalid.getMessage(), invalid);
+        }
+
+        this.pattern = entry.pattern();
+        this.analysis = entry.analysis();
+        this.literalSearcher = entry.literalSearcher();
+        Pattern compiled = this.pattern;
+        this.matchers = ThreadLocal.withInitial(() -> compiled.matcher(""));
+    }
+
+    /**
+     * Gets the regular expression pattern used by this processor.
+     *
+     * @return the pattern string
+     */
+    public String getRegex() {
+        return regex;
+    }
+
+    /**
+     * Gets the compiled pattern used by this processor.
+     *
+     * @return the compiled pattern
+     */
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Gets the literal analysis of the pattern used by this processor.
+     *
+     * @return the pattern analysis
+     */
+    public PatternAnalysis getAnalysis() {
+        return analysis;
+    }
+
+    /**
+     * Records one use of this processor's pattern without running it.
+     * Useful for callers that match with {@link #getPattern()} directly, such as batch jobs
+     * that record a single use per job rather than per line.
+     */
+    public void recordUsage() {
+        historyManager.recordValidatedPatternUsage(regex);
     }
 
     /**
      * Finds all matches of the regex pattern in the input string and records pattern usage.
      *
      * @param input the string to search in (cannot be null)
-     * @return list of matching strings, empty list if no matches found or pattern is invalid
+     * @return list of matching strings, empty list if no matches found
      * @throws NullPointerException if input is null
      *
      * @example
@@ -54,12 +159,192 @@ public class RegexProcessor {
      */
     public List<String> findMatchesAndRecord(String input) {
         Objects.requireNonNull(input, "Input string cannot be null");
+        return findMatches(input, null);
+    }
+
+    /**
+     * Finds all matches of the regex pattern in the input string within an execution budget
+     * and records pattern usage.
+     *
+     * @param input the string to search in (cannot be null)
+     * @param budget the limits the search must stay within (cannot be null)
+     * @return list of matching strings, empty list if no matches found
+     * @throws RegexBudgetExceededException if the search breaches the budget or the thread is interrupted
+     * @throws NullPointerException if input or budget is null
+     */
+    public List<String> findMatchesAndRecord(String input, ExecutionBudget budget) {
+        Objects.requireNonNull(input, "Input string cannot be null");
+        Objects.requireNonNull(budget, "Budget cannot be null");
+        return findMatches(input, budget);
+    }
+
+    private List<String> findMatches(String input, ExecutionBudget budget) {
+        historyManager.recordValidatedPatternUsage(regex);
+
+        List<String> matches = new ArrayList<>();
+        if (literalSearcher != null) {
+            String literal = literalSearcher.getLiteral();
+            for (int i = input.indexOf(literal); i >= 0; i = input.indexOf(literal, i + literal.length())) {
+                matches.add(literal);
+            }
+            return matches;
+        }
+        if (analysis.cannotMatch(input)) {
+            return matches;
+        }
+
+        Matcher matcher = matchers.get().reset(guard(input, budget));
+        try {
+            while (matcher.find()) {
+                matches.add(matcher.group());
+            }
+            return matches;
+        } finally {
+            matcher.reset("");
+        }
+    }
+
+    /**
+     * Lazily streams the matches of the regex pattern in the input and records pattern usage.
+     * Unlike {@link #findMatchesAndRecord(String)}, matches are produced one at a time with their
+     * offsets, so large inputs with many hits do not need to be collected into a list.
+     *
+     * @param input the sequence to search in (cannot be null)
+     * @return a sequential stream of match results in input order
+     * @throws NullPointerException if input is null
+     *
+     * @example
+     * Optional<MatchResult> first = processor.streamMatchesAndRecord(hugeLog).findFirst();
+     */
+    public Stream<MatchResult> streamMatchesAndRecord(CharSequence input) {
+        Objects.requireNonNull(input, "Input string cannot be null");
+
+        historyManager.recordValidatedPatternUsage(regex);
+        return MatchSpliterator.stream(pattern, input);
+    }
+
+    /**
+     * Finds the offsets of all matches of the regex pattern and records pattern usage.
+     * No matched text is copied; use {@link MatchSpans#text(int)} to materialize individual matches.
+     *
+     * @param input the sequence to search in (cannot be null)
+     * @return the spans of all matches, pointing into the input
+     * @throws NullPointerException if input is null
+     */
+    public MatchSpans findSpansAndRecord(CharSequence input) {
+        Objects.requireNonNull(input, "Input string cannot be null");
+        return findSpans(input, null);
+    }
+
+    /**
+     * Finds the offsets of all matches of the regex pattern within an execution budget and records pattern usage.
+     *
+     * @param input the sequence to search in (cannot be null)
+     * @param budget the limits the search must stay within (cannot be null)
+     * @return the spans of all matches, pointing into the input
+     * @throws RegexBudgetExceededException if the search breaches the budget or the thread is interrupted
+     * @throws NullPointerException if input or budget is null
+     */
+    public MatchSpans findSpansAndRecord(CharSequence input, ExecutionBudget budget) {
+        Objects.requireNonNull(input, "Input string cannot be null");
+        Objects.requireNonNull(budget, "Budget cannot be null");
+        return findSpans(input, budget);
+    }
+
+    private MatchSpans findSpans(CharSequence input, ExecutionBudget budget) {
+        historyManager.recordValidatedPatternUsage(regex);
+        if (literalSearcher != null) {
+            return RegexUtils.findAllSpans(literalSearcher, input);
+        }
+        if (budget == null) {
+            return RegexUtils.findAllSpans(pattern, input);
+        }
+
+        // The spans point into the plain input, so reading them later does not draw on the budget
+        MatchSpans spans = new MatchSpans(input);
+        forEachSpan(input, budget, null, spans::add);
+        return spans;
+    }
+
+    /**
+     * Passes the offsets of every match to a consumer as soon as it is found, within an execution
+     * budget, and records pattern usage. Suited to callers that publish matches while the search is
+     * still running, such as background tasks showing progress.
+     *
+     * @param input the sequence to search in (cannot be null)
+     * @param budget the limits the search must stay within (cannot be null)
+     * @param progressListener receives the index being read every few thousand reads, on the
+     *                         searching thread (cannot be null)
+     * @param consumer receives the offsets of each match, on the searching thread (cannot be null)
+     * @return the number of matches found
+     * @throws RegexBudgetExceededException if the search breaches the budget or the thread is interrupted
+     * @throws NullPointerException if any parameter is null
+     */
+    public int forEachSpanAndRecord(CharSequence input, ExecutionBudget budget, IntConsumer progressListener,
+                                    SpanConsumer consumer) {
+        Objects.requireNonNull(input, "Input string cannot be null");
+        Objects.requireNonNull(budget, "Budget cannot be null");
+        Objects.requireNonNull(progressListener, "Progress listener cannot be null");
+        Objects.requireNonNull(consumer, "Span consumer cannot be null");
 
+        historyManager.recordValidatedPatternUsage(regex);
+        return forEachSpan(input, budget, progressListener, consumer);
+    }
+
+    private int forEachSpan(CharSequence input, ExecutionBudget budget, IntConsumer progressListener,
+                            SpanConsumer consumer) {
+        int count = 0;
+        if (literalSearcher != null) {
+            int length = literalSearcher.getLiteral().length();
+            for (int i = literalSearcher.indexOf(input, 0); i >= 0; i = literalSearcher.indexOf(input, i + length)) {
+                consumer.accept(i, i + length);
+                count++;
+            }
+            return count;
+        }
+        if (input instanceof String string && analysis.cannotMatch(string)) {
+            return count;
+        }
+
+        Matcher matcher = pattern.matcher(guard(input, budget, progressListener));
+        while (matcher.find()) {
+            consumer.accept(matcher.start(), matcher.end());
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Estimates the number of distinct texts matched by the regex pattern and records pattern usage.
+     * Each match is hashed straight from the input as it is found, so memory stays fixed however
+     * many matches there are, and estimators of several inputs can be merged.
+     *
+     * @param input the sequence to search in (cannot be null)
+     * @param precision the precision of the estimator, see {@link HyperLogLog}
+     * @return the estimator holding the matched texts
+     * @throws NullPointerException if input is null
+     * @throws IllegalArgumentException if precision is out of range
+     */
+    public HyperLogLog estimateDistinctMatchesAndRecord(CharSequence input, int precision) {
+        Objects.requireNonNull(input, "Input string cannot be null");
+        HyperLogLog estimator = new HyperLogLog(precision);
+        historyManager.recordValidatedPatternUsage(regex);
+        if (literalSearcher != null) {
+            // Every match of a literal is the same text
+            if (literalSearcher.indexOf(input, 0) >= 0) {
+                estimator.add(literalSearcher.getLiteral());
+            }
+            return estimator;
+        }
+
+        Matcher matcher = matchers.get().reset(input);
         try {
-            historyManager.recordPatternUsage(this.regex);
-            return RegexUtils.findAllMatches(this.regex, input);
-        } catch (InvalidRegexException e) {
-            return Collections.emptyList();
+            while (matcher.find()) {
+                estimator.add(input, matcher.start(), matcher.end());
+            }
+            return estimator;
+        } finally {
+            matcher.reset("");
         }
     }
 
@@ -68,19 +353,101 @@ public class RegexProcessor {
      *
      * @param input the string to perform replacement on (cannot be null)
      * @param replacement the replacement string (cannot be null)
-     * @return the resulting string after replacement, or null if pattern is invalid
+     * @return the resulting string after replacement
      * @throws NullPointerException if input or replacement is null
      */
     public String findAndReplace(String input, String replacement) {
         Objects.requireNonNull(input, "Input string cannot be null");
         Objects.requireNonNull(replacement, "Replacement string cannot be null");
+        return replace(input, replacement, null, null);
+    }
+
+    /**
+     * Replaces all occurrences of the regex pattern in the input string within an execution budget.
+     *
+     * @param input the string to perform replacement on (cannot be null)
+     * @param replacement the replacement string (cannot be null)
+     * @param budget the limits the replacement must stay within (cannot be null)
+     * @return the resulting string after replacement
+     * @throws RegexBudgetExceededException if the replacement breaches the budget or the thread is interrupted
+     * @throws NullPointerException if any parameter is null
+     */
+    public String findAndReplace(String input, String replacement, ExecutionBudget budget) {
+        Objects.requireNonNull(input, "Input string cannot be null");
+        Objects.requireNonNull(replacement, "Replacement string cannot be null");
+        Objects.requireNonNull(budget, "Budget cannot be null");
+        return replace(input, replacement, budget, null);
+    }
+
+    /**
+     * Replaces all occurrences of the regex pattern in the input string within an execution budget,
+     * reporting how far the scan has got.
+     *
+     * @param input the string to perform replacement on (cannot be null)
+     * @param replacement the replacement string (cannot be null)
+     * @param budget the limits the replacement must stay within (cannot be null)
+     * @param progressListener receives the index being read every few thousand reads, on the
+     *                         replacing thread (cannot be null)
+     * @return the resulting string after replacement
+     * @throws RegexBudgetExceededException if the replacement breaches the budget or the thread is interrupted
+     * @throws NullPointerException if any parameter is null
+     */
+    public String findAndReplace(String input, String replacement, ExecutionBudget budget,
+                                 IntConsumer progressListener) {
+        Objects.requireNonNull(input, "Input string cannot be null");
+        Objects.requireNonNull(replacement, "Replacement string cannot be null");
+        Objects.requireNonNull(budget, "Budget cannot be null");
+        Objects.requireNonNull(progressListener, "Progress listener cannot be null");
+        return replace(input, replacement, budget, progressListener);
+    }
 
+    private String replace(String input, String replacement, ExecutionBudget budget, IntConsumer progressListener) {
+        historyManager.recordValidatedPatternUsage(regex);
+
+        if (literalSearcher != null && RegexUtils.isLiteralReplacement(replacement)) {
+            return input.replace(literalSearcher.getLiteral(), replacement);
+        }
+        if (analysis.cannotMatch(input)) {
+            return input;
+        }
+
+        Matcher matcher = matchers.get().reset(guard(input, budget, progressListener));
         try {
-            historyManager.recordPatternUsage(regex);
-            return RegexUtils.replaceAll(regex, input, replacement);
-        } catch (InvalidRegexException e) {
-            return null;
+            return matcher.replaceAll(replacement);
+        } finally {
+            matcher.reset("");
+        }
+    }
+
+    private static CharSequence guard(CharSequence input, ExecutionBudget budget) {
+        return guard(input, budget, null);
+    }
+
+    private static CharSequence guard(CharSequence input, ExecutionBudget budget, IntConsumer progressListener) {
+        if (budget == null) {
+            return input;
         }
+        return progressListener == null
+                ? new BudgetedCharSequence(input, budget)
+                : new BudgetedCharSequence(input, budget, progressListener);
+    }
+
+    /**
+     * Replaces all occurrences of the regex pattern in a file, streaming the result to a target file.
+     * Only a bounded window of the source is held in memory, so files of any size can be rewritten.
+     *
+     * @param source the UTF-8 file to read (cannot be null)
+     * @param target the file to write (cannot be null, and must not be the source)
+     * @param replacement the replacement string (cannot be null)
+     * @return the bytes processed and replacements made
+     * @throws IOException if either file cannot be accessed
+     * @throws NullPointerException if any parameter is null
+     */
+    public ReplaceSummary findAndReplace(Path source, Path target, String replacement) throws IOException {
+        Objects.requireNonNull(replacement, "Replacement string cannot be null");
+
+        historyManager.recordValidatedPatternUsage(regex);
+        return new StreamingReplacer(pattern).replace(source, target, replacement);
     }
 
     /**
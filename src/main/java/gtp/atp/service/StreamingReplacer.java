@@ -0,0 +1,191 @@
+package gtp.atp.service;
+
+import gtp.atp.model.ReplaceSummary;
+import gtp.atp.util.RegexUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites a file with every match of a pattern replaced, without holding the document in memory.
+ * The source is read in fixed-size windows; matches in each window are replaced with
+ * {@link Matcher#appendReplacement(StringBuilder, String)} semantics and written straight to a buffered
+ * writer on the target. Memory use is bounded by the window size regardless of the file size.
+ *
+ * <p>The last {@code maxMatchLength} characters of each window are carried over into the next one,
+ * so any match of up to that length is replaced even when it crosses a window boundary. A match that
+ * runs into the end of a window is rescanned in the next one, so longer matches are only split when
+ * they exceed the whole window.
+ *
+ * <p>Each window is searched as a region of the text with up to {@code maxMatchLength} characters of
+ * already written text kept in front of it, so anchors, word boundaries and lookbehind see the same
+ * text as in {@link Matcher#replaceAll(String)} rather than a new input. Lookbehind cannot see further
+ * back than those characters. Patterns using {@code \G} depend on where the previous match ended,
+ * which a window does not know, and are rejected.
+ */
+public class StreamingReplacer {
+    /**
+     * Default number of characters read per window.
+     */
+    public static final int DEFAULT_WINDOW_CHARS = 1024 * 1024;
+
+    /**
+     * Default maximum length of a match that is guaranteed to be replaced across window boundaries.
+     */
+    public static final int DEFAULT_MAX_MATCH_LENGTH = 4096;
+
+    private final Pattern pattern;
+    private final int windowChars;
+    private final int maxMatchLength;
+
+    /**
+     * Constructs a replacer with the default window size and maximum match length.
+     *
+     * @param pattern the compiled pattern to replace (cannot be null)
+     * @throws NullPointerException if pattern is null
+     */
+    public StreamingReplacer(Pattern pattern) {
+        this(pattern, DEFAULT_WINDOW_CHARS, DEFAULT_MAX_MATCH_LENGTH);
+    }
+
+    /**
+     * Constructs a replacer with a custom window size and maximum match length.
+     *
+     * @param pattern the compiled pattern to replace (cannot be null)
+     * @param windowChars the number of characters scanned per window (must be positive)
+     * @param maxMatchLength the longest match, in characters, guaranteed to be replaced across windows
+     * @throws NullPointerException if pattern is null
+     * @throws IllegalArgumentException if either size is not positive, or the pattern uses {@code \G}
+     */
+    public StreamingReplacer(Pattern pattern, int windowChars, int maxMatchLength) {
+        if (windowChars <= 0) {
+            throw new IllegalArgumentException("windowChars must be greater than 0");
+        }
+        if (maxMatchLength <= 0 || maxMatchLength > (Integer.MAX_VALUE - windowChars) / 2) {
+            throw new IllegalArgumentException("maxMatchLength must be greater than 0");
+        }
+        Objects.requireNonNull(pattern, "Pattern cannot be null");
+        if (RegexUtils.usesPreviousMatchAnchor(pattern.pattern())) {
+            throw new IllegalArgumentException("Patterns using \\G cannot be replaced in windows");
+        }
+        this.pattern = pattern;
+        this.windowChars = windowChars;
+        this.maxMatchLength = maxMatchLength;
+    }
+
+    /**
+     * Replaces every match in a UTF-8 source file and writes the result to a target file.
+     * The target is created or truncated.
+     *
+     * @param source the file to read (cannot be null)
+     * @param target the file to write (cannot be null, and must not be the source)
+     * @param replacement the replacement string, which may refer to captured groups (cannot be null)
+     * @return the bytes processed and replacements made
+     * @throws IOException if either file cannot be accessed or the source is not valid UTF-8
+     * @throws IllegalArgumentException if source and target are the same file
+     * @throws NullPointerException if any parameter is null
+     */
+    public ReplaceSummary replace(Path source, Path target, String replacement) throws IOException {
+        Objects.requireNonNull(source, "Source cannot be null");
+        Objects.requireNonNull(target, "Target cannot be null");
+        Objects.requireNonNull(replacement, "Replacement string cannot be null");
+        if (Files.exists(target) && Files.isSameFile(source, target)) {
+            throw new IllegalArgumentException("Source and target must be different files");
+        }
+
+        ReplaceCounts counts;
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8);
+             BufferedWriter writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            counts = replace(reader, writer, replacement);
+        }
+
+        return new ReplaceSummary(
+                Files.size(source), Files.size(target), counts.charsProcessed(), counts.replacements());
+    }
+
+    /**
+     * Streams the reader through the replacement into the writer.
+     *
+     * @return the number of characters processed and the number of replacements made
+     */
+    private ReplaceCounts replace(Reader in, Writer out, String replacement) throws IOException {
+        // Written text kept for context, then the carried tail, then a window of new text
+        char[] buffer = new char[2 * maxMatchLength + windowChars];
+        StringBuilder pending = new StringBuilder();
+        Matcher matcher = pattern.matcher("");
+
+        int context = 0;
+        int length = 0;
+        long charsProcessed = 0;
+        long replacements = 0;
+        boolean eof = false;
+
+        while (true) {
+            while (length < buffer.length && !eof) {
+                int read = in.read(buffer, length, buffer.length - length);
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    length += read;
+                }
+            }
+
+            int safeLimit = eof ? length : length - maxMatchLength;
+            int resume = safeLimit;
+            int written = context;
+            // Where appendReplacement starts copying input, which is the buffer start, not the region start
+            int appendPosition = 0;
+
+            matcher.reset(CharBuffer.wrap(buffer, 0, length))
+                    .region(context, length)
+                    .useTransparentBounds(true)
+                    .useAnchoringBounds(false);
+            while (matcher.find()) {
+                int start = matcher.start();
+                if (!eof && start >= safeLimit) {
+                    // May be truncated by the window end; the next window sees it in full
+                    break;
+                }
+                if (!eof && start > context && matcher.hitEnd()) {
+                    // Ran into the window end and could grow with more input, so rescan it from its start
+                    resume = start;
+                    break;
+                }
+                out.write(buffer, written, start - written);
+                pending.setLength(0);
+                matcher.appendReplacement(pending, replacement);
+                out.append(pending, start - appendPosition, pending.length());
+                written = matcher.end();
+                appendPosition = written;
+                replacements++;
+                resume = Math.max(safeLimit, written);
+            }
+
+            if (eof) {
+                out.write(buffer, written, length - written);
+                return new ReplaceCounts(charsProcessed + length - context, replacements);
+            }
+
+            // Emit the text up to the carried tail, then move the context and tail to the front of the buffer
+            out.write(buffer, written, resume - written);
+            int keep = Math.min(resume, maxMatchLength);
+            System.arraycopy(buffer, resume - keep, buffer, 0, length - resume + keep);
+            length -= resume - keep;
+            charsProcessed += resume - context;
+            context = keep;
+        }
+    }
+
+    private record ReplaceCounts(long charsProcessed, long replacements) {
+    }
+}
@@ -1,14 +1,278 @@
 package gtp.atp.service;
 
+import gtp.atp.model.WordCount;
+import gtp.atp.util.SpaceSavingCounter;
+import gtp.atp.util.WordCountTable;
+import gtp.atp.util.WordScanner;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
+/**
+ * Computes word statistics over text.
+ *
+ * <p>Word frequencies are counted in a single streaming pass: text is read in fixed-size buffers,
+ * split into lowercase words by a {@link WordScanner} and counted as it goes. Memory use grows with
+ * the number of distinct words, not with the length of the text, so files far larger than the heap
+ * can be counted. Words are runs of ASCII letters, digits and underscores, as matched by {@code \w}.
+ * The parallel variants split the text across a {@link ParallelWordCounter} and give the same counts.
+ *
+ * <p>The {@code countWords} methods return the counts as a {@link WordCountTable}, which keeps them in
+ * primitive arrays; the {@code wordFrequency} methods copy them into a map for convenience.
+ *
+ * <p>The most frequent words are found exactly with {@link #topWords}, which keeps only the best k
+ * while scanning the counts, or approximately in fixed memory with {@link #heavyHitters}, for text
+ * that keeps arriving. The number of distinct words is estimated in fixed memory with
+ * {@link #distinctWords}, without counting each word.
+ */
 public class TextAnalyzer {
+    /**
+     * Number of characters read per buffer when counting words.
+     */
+    public static final int DEFAULT_BUFFER_CHARS = 64 * 1024;
+
+    /**
+     * Counts the occurrences of each lowercase word in a string.
+     *
+     * @param input the text to count (cannot be null)
+     * @return the number of occurrences of each word
+     * @throws NullPointerException if input is null
+     */
     public Map<String, Long> wordFrequency(String input) {
-        return Arrays.stream(input.toLowerCase().split("\\W+"))
-                .filter(word -> !word.isEmpty())
-                .collect(Collectors.groupingBy(w -> w, Collectors.counting()));
+        return countWords(input).toMap();
+    }
+
+    /**
+     * Counts the occurrences of each lowercase word read from a reader, until its end.
+     * The reader is not closed.
+     *
+     * @param reader the source of the text (cannot be null)
+     * @return the number of occurrences of each word
+     * @throws IOException if the reader fails
+     * @throws NullPointerException if reader is null
+     */
+    public Map<String, Long> wordFrequency(Reader reader) throws IOException {
+        return countWords(reader).toMap();
+    }
+
+    /**
+     * Counts the occurrences of each lowercase word in a UTF-8 file, reading it in buffers.
+     *
+     * @param file the file to count (cannot be null)
+     * @return the number of occurrences of each word
+     * @throws IOException if the file cannot be read or is not valid UTF-8
+     * @throws NullPointerException if file is null
+     */
+    public Map<String, Long> wordFrequency(Path file) throws IOException {
+        return countWords(file).toMap();
+    }
+
+    /**
+     * Counts the occurrences of each lowercase word in a character sequence, using all available processors.
+     *
+     * @param input the text to count (cannot be null)
+     * @return the number of occurrences of each word, identical to {@link #wordFrequency(String)}
+     * @throws NullPointerException if input is null
+     */
+    public Map<String, Long> parallelWordFrequency(CharSequence input) {
+        return parallelCountWords(input).toMap();
+    }
+
+    /**
+     * Counts the occurrences of each lowercase word in a UTF-8 file, using all available processors.
+     *
+     * @param file the file to count (cannot be null)
+     * @return the number of occurrences of each word, identical to {@link #wordFrequency(Path)}
+     * @throws IOException if the file cannot be read or is not valid UTF-8
+     * @throws NullPointerException if file is null
+     */
+    public Map<String, Long> parallelWordFrequency(Path file) throws IOException {
+        return parallelCountWords(file).toMap();
+    }
+
+    /**
+     * Counts the occurrences of each lowercase word in a string into a compact table.
+     *
+     * @param input the text to count (cannot be null)
+     * @return the word counts
+     * @throws NullPointerException if input is null
+     */
+    public WordCountTable countWords(String input) {
+        Objects.requireNonNull(input, "Input cannot be null");
+        WordScanner scanner = new WordScanner();
+        WordCountTable counts = new WordCountTable();
+        char[] buffer = new char[Math.min(input.length(), DEFAULT_BUFFER_CHARS)];
+        for (int from = 0; from < input.length(); from += buffer.length) {
+            int to = Math.min(input.length(), from + buffer.length);
+            input.getChars(from, to, buffer, 0);
+            scanner.feed(buffer, 0, to - from, counts);
+        }
+        scanner.finish(counts);
+        return counts;
+    }
+
+    /**
+     * Counts the occurrences of each lowercase word read from a reader into a compact table.
+     * The reader is read until its end and is not closed.
+     *
+     * @param reader the source of the text (cannot be null)
+     * @return the word counts
+     * @throws IOException if the reader fails
+     * @throws NullPointerException if reader is null
+     */
+    public WordCountTable countWords(Reader reader) throws IOException {
+        WordCountTable counts = new WordCountTable();
+        scanWords(reader, counts);
+        return counts;
+    }
+
+    /**
+     * Reads a reader until its end, in buffers, and passes every lowercase word to a sink.
+     * The reader is not closed.
+     *
+     * @param reader the source of the text (cannot be null)
+     * @param sink the receiver of the words (cannot be null)
+     * @throws IOException if the reader fails
+     * @throws NullPointerException if reader or sink is null
+     */
+    public void scanWords(Reader reader, WordScanner.WordSink sink) throws IOException {
+        Objects.requireNonNull(reader, "Reader cannot be null");
+        Objects.requireNonNull(sink, "Word sink cannot be null");
+        WordScanner scanner = new WordScanner();
+        char[] buffer = new char[DEFAULT_BUFFER_CHARS];
+        int read;
+        while ((read = reader.read(buffer)) >= 0) {
+            scanner.feed(buffer, 0, read, sink);
+        }
+        scanner.finish(sink);
+    }
+
+    /**
+     * Counts the occurrences of each lowercase word in a UTF-8 file into a compact table.
+     *
+     * @param file the file to count (cannot be null)
+     * @return the word counts
+     * @throws IOException if the file cannot be read or is not valid UTF-8
+     * @throws NullPointerException if file is null
+     */
+    public WordCountTable countWords(Path file) throws IOException {
+        Objects.requireNonNull(file, "File cannot be null");
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return countWords(reader);
+        }
+    }
+
+    /**
+     * Counts the occurrences of each lowercase word in a character sequence into a compact table,
+     * using all available processors.
+     *
+     * @param input the text to count (cannot be null)
+     * @return the word counts
+     * @throws NullPointerException if input is null
+     */
+    public WordCountTable parallelCountWords(CharSequence input) {
+        return new ParallelWordCounter().count(input);
+    }
+
+    /**
+     * Counts the occurrences of each lowercase word in a UTF-8 file into a compact table,
+     * using all available processors.
+     *
+     * @param file the file to count (cannot be null)
+     * @return the word counts
+     * @throws IOException if the file cannot be read or is not valid UTF-8
+     * @throws NullPointerException if file is null
+     */
+    public WordCountTable parallelCountWords(Path file) throws IOException {
+        return new ParallelWordCounter().count(file);
+    }
+
+    /**
+     * Gets the most frequent words of a string with their exact counts.
+     *
+     * @param input the text to count (cannot be null)
+     * @param k the most words to return
+     * @return up to k word counts, from most to least frequent
+     * @throws NullPointerException if input is null
+     * @throws IllegalArgumentException if k is not positive
+     */
+    public List<WordCount> topWords(String input, int k) {
+        return countWords(input).top(k);
+    }
+
+    /**
+     * Gets the most frequent words of a UTF-8 file with their exact counts.
+     *
+     * @param file the file to count (cannot be null)
+     * @param k the most words to return
+     * @return up to k word counts, from most to least frequent
+     * @throws IOException if the file cannot be read or is not valid UTF-8
+     * @throws NullPointerException if file is null
+     * @throws IllegalArgumentException if k is not positive
+     */
+    public List<WordCount> topWords(Path file, int k) throws IOException {
+        return countWords(file).top(k);
+    }
+
+    /**
+     * Summarizes the words read from a reader in fixed memory, for finding the most frequent ones
+     * approximately. The returned counter can keep receiving text through {@link #scanWords}.
+     * The reader is not closed.
+     *
+     * @param reader the source of the text (cannot be null)
+     * @param capacity the most words monitored at a time
+     * @return the counter holding the summary
+     * @throws IOException if the reader fails
+     * @throws NullPointerException if reader is null
+     * @throws IllegalArgumentException if capacity is out of range
+     */
+    public SpaceSavingCounter heavyHitters(Reader reader, int capacity) throws IOException {
+        SpaceSavingCounter counter = new SpaceSavingCounter(capacity);
+        scanWords(reader, counter);
+        return counter;
+    }
+
+    /**
+     * Estimates the number of distinct lowercase words read from a reader, in memory fixed by the
+     * precision. The returned estimator can be merged with those of other inputs, or keep receiving
+     * text through {@link #scanWords}. The reader is not closed.
+     *
+     * @param reader the source of the text (cannot be null)
+     * @param precision the precision of the estimator, see {@link HyperLogLog}
+     * @return the estimator holding the words seen
+     * @throws IOException if the reader fails
+     * @throws NullPointerException if reader is null
+     * @throws IllegalArgumentException if precision is out of range
+     */
+    public HyperLogLog distinctWords(Reader reader, int precision) throws IOException {
+        HyperLogLog estimator = new HyperLogLog(precision);
+        scanWords(reader, estimator);
+        return estimator;
+    }
+
+    /**
+     * Estimates the number of distinct lowercase words in a UTF-8 file, in memory fixed by the precision.
+     *
+     * @param file the file to read (cannot be null)
+     * @param precision the precision of the estimator, see {@link HyperLogLog}
+     * @return the estimator holding the words seen
+     * @throws IOException if the file cannot be read or is not valid UTF-8
+     * @throws NullPointerException if file is null
+     * @throws IllegalArgumentException if precision is out of range
+     */
+    public HyperLogLog distinctWords(Path file, int precision) throws IOException {
+        Objects.requireNonNull(file, "File cannot be null");
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return distinctWords(reader, precision);
+        }
     }
 
     public String summarizeText(String input, int wordLimit) {
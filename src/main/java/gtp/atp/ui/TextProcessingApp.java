@@ -1,5 +1,6 @@
 package gtp.atp.ui;
 
+import gtp.atp.controller.DataFlowController;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -57,6 +58,12 @@ public class TextProcessingApp extends Application {
         }
     }
 
+    @Override
+    public void stop() {
+        LOGGER.info("Stopping TextProcessingApp...");
+        DataFlowController.shutdown();
+    }
+
     private void showErrorAlert(Throwable e) {
         try {
             LOGGER.fine("Attempting to show error alert dialog");
@@ -0,0 +1,224 @@
+package gtp.atp.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An Aho-Corasick automaton that finds every occurrence of a set of literal strings in one pass.
+ * The scan costs time proportional to the input length plus the number of occurrences reported,
+ * independent of how many literals the automaton holds. Transitions are kept in a primitive
+ * open-addressing table, so the automaton holds no boxed keys.
+ */
+public final class AhoCorasick {
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private final int[] literalLengths;
+
+    // Trie structure, indexed by state
+    private final int[] failure;
+    private final int[] dictionaryLink;
+    private final int[] firstOutput;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final char[] edgeChar;
+    private int stateCount;
+
+    // Output lists, indexed by output entry
+    private final int[] outputLiteral;
+    private final int[] nextOutput;
+    private int outputCount;
+
+    // Transition table keyed by (state, char)
+    private final long[] transitionKeys;
+    private final int[] transitionTargets;
+
+    /**
+     * Receives each occurrence found by {@link #search(CharSequence, Hit)}.
+     */
+    @FunctionalInterface
+    public interface Hit {
+        /**
+         * Called once per occurrence, in order of increasing end offset.
+         *
+         * @param literalIndex the index of the literal in the list the automaton was built from
+         * @param start the starting offset (inclusive) of the occurrence
+         * @param end the ending offset (exclusive) of the occurrence
+         */
+        void found(int literalIndex, int start, int end);
+    }
+
+    /**
+     * Builds an automaton over the given literals.
+     *
+     * @param literals the non-empty strings to search for (cannot be null)
+     * @throws IllegalArgumentException if any literal is null or empty
+     */
+    public AhoCorasick(List<String> literals) {
+        Objects.requireNonNull(literals, "Literals cannot be null");
+        int capacity = 1;
+        for (String literal : literals) {
+            if (literal == null || literal.isEmpty()) {
+                throw new IllegalArgumentException("Literals cannot be null or empty");
+            }
+            capacity += literal.length();
+        }
+
+        literalLengths = new int[literals.size()];
+        failure = new int[capacity];
+        dictionaryLink = new int[capacity];
+        firstOutput = new int[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        edgeChar = new char[capacity];
+        outputLiteral = new int[literals.size()];
+        nextOutput = new int[literals.size()];
+        transitionKeys = new long[tableSize(capacity)];
+        transitionTargets = new int[transitionKeys.length];
+        Arrays.fill(transitionKeys, NONE);
+
+        newState();
+        for (int i = 0; i < literals.size(); i++) {
+            insert(literals.get(i), i);
+        }
+        linkFailures();
+    }
+
+    /**
+     * Gets the number of literals in the automaton.
+     *
+     * @return the literal count
+     */
+    public int size() {
+        return literalLengths.length;
+    }
+
+    /**
+     * Reports every occurrence of every literal in the text, including overlapping ones.
+     *
+     * @param text the text to scan (cannot be null)
+     * @param hit the callback receiving each occurrence (cannot be null)
+     */
+    public void search(CharSequence text, Hit hit) {
+        Objects.requireNonNull(text, "Text cannot be null");
+        Objects.requireNonNull(hit, "Hit callback cannot be null");
+
+        int state = ROOT;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            int next = transition(state, c);
+            while (next == NONE && state != ROOT) {
+                state = failure[state];
+                next = transition(state, c);
+            }
+            state = next == NONE ? ROOT : next;
+
+            for (int s = firstOutput[state] != NONE ? state : dictionaryLink[state]; s != NONE; s = dictionaryLink[s]) {
+                for (int o = firstOutput[s]; o != NONE; o = nextOutput[o]) {
+                    int literal = outputLiteral[o];
+                    hit.found(literal, i + 1 - literalLengths[literal], i + 1);
+                }
+            }
+        }
+    }
+
+    private void insert(String literal, int literalIndex) {
+        int state = ROOT;
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            int next = transition(state, c);
+            if (next == NONE) {
+                next = newState();
+                edgeChar[next] = c;
+                nextSibling[next] = firstChild[state];
+                firstChild[state] = next;
+                putTransition(state, c, next);
+            }
+            state = next;
+        }
+
+        literalLengths[literalIndex] = literal.length();
+        outputLiteral[outputCount] = literalIndex;
+        nextOutput[outputCount] = firstOutput[state];
+        firstOutput[state] = outputCount++;
+    }
+
+    /**
+     * Computes failure and dictionary links breadth-first, so every shorter suffix state is linked first.
+     */
+    private void linkFailures() {
+        int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+        for (int child = firstChild[ROOT]; child != NONE; child = nextSibling[child]) {
+            failure[child] = ROOT;
+            dictionaryLink[child] = NONE;
+            queue[tail++] = child;
+        }
+
+        while (head < tail) {
+            int state = queue[head++];
+            for (int child = firstChild[state]; child != NONE; child = nextSibling[child]) {
+                char c = edgeChar[child];
+                int fallback = failure[state];
+                int next = transition(fallback, c);
+                while (next == NONE && fallback != ROOT) {
+                    fallback = failure[fallback];
+                    next = transition(fallback, c);
+                }
+                int target = next == NONE ? ROOT : next;
+                failure[child] = target;
+                dictionaryLink[child] = firstOutput[target] != NONE ? target : dictionaryLink[target];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    private int newState() {
+        int state = stateCount++;
+        failure[state] = ROOT;
+        dictionaryLink[state] = NONE;
+        firstOutput[state] = NONE;
+        firstChild[state] = NONE;
+        nextSibling[state] = NONE;
+        return state;
+    }
+
+    private int transition(int state, char c) {
+        long key = ((long) state << 16) | c;
+        int mask = transitionKeys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            long existing = transitionKeys[slot];
+            if (existing == key) {
+                return transitionTargets[slot];
+            }
+            if (existing == NONE) {
+                return NONE;
+            }
+        }
+    }
+
+    private void putTransition(int state, char c, int target) {
+        long key = ((long) state << 16) | c;
+        int mask = transitionKeys.length - 1;
+        int slot = mix(key) & mask;
+        while (transitionKeys[slot] != NONE) {
+            slot = (slot + 1) & mask;
+        }
+        transitionKeys[slot] = key;
+        transitionTargets[slot] = target;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Sizes the transition table to a power of two at most half full, since there is one edge per non-root state.
+     */
+    private static int tableSize(int states) {
+        return Integer.highestOneBit(Math.max(2, states) * 2 - 1) << 1;
+    }
+}
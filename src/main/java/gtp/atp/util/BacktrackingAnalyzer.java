@@ -0,0 +1,202 @@
+package gtp.atp.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A static heuristic that spots regular expressions prone to catastrophic backtracking before they run.
+ * It flags nested quantifiers such as {@code (a+)+} or {@code (\w*\s?)*}: a repeated group that itself
+ * contains an unbounded repetition can split the same text in exponentially many ways, and every one
+ * of them is tried when the overall match fails. Atomic groups and possessive quantifiers, which never
+ * give back what they matched, are not flagged.
+ *
+ * <p>The check is deliberately simple and errs towards reporting patterns that are in practice harmless;
+ * an execution budget remains the actual safeguard.
+ */
+public final class BacktrackingAnalyzer {
+
+    private BacktrackingAnalyzer() {
+        throw new AssertionError("Cannot instantiate utility class");
+    }
+
+    /**
+     * Checks whether a regular expression contains a nested quantifier.
+     *
+     * @param regex the regular expression to check (cannot be null)
+     * @return true if at least one risk was found
+     * @throws NullPointerException if regex is null
+     */
+    public static boolean isRisky(String regex) {
+        return !findRisks(regex).isEmpty();
+    }
+
+    /**
+     * Describes each nested quantifier found in a regular expression.
+     *
+     * @param regex the regular expression to check (cannot be null)
+     * @return one human-readable description per risky group, empty if none were found
+     * @throws NullPointerException if regex is null
+     *
+     * @example
+     * BacktrackingAnalyzer.findRisks("(a+)+$");
+     * // Returns ["Nested quantifier: group at index 0 repeats an unbounded quantifier"]
+     */
+    public static List<String> findRisks(String regex) {
+        Objects.requireNonNull(regex, "Regex pattern cannot be null");
+
+        List<String> risks = new ArrayList<>();
+        Deque<Group> groups = new ArrayDeque<>();
+        Group current = new Group(0, false);
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            switch (c) {
+                case '\\' -> {
+                    i = skipEscape(regex, i);
+                    i = quantifiedAtom(regex, i, current, false, risks, -1);
+                }
+                case '[' -> {
+                    i = skipClass(regex, i);
+                    i = quantifiedAtom(regex, i, current, false, risks, -1);
+                }
+                case '(' -> {
+                    groups.push(current);
+                    current = new Group(i, regex.startsWith("(?>", i));
+                    i = skipGroupPrefix(regex, i);
+                }
+                case ')' -> {
+                    Group inner = current;
+                    current = groups.isEmpty() ? new Group(0, false) : groups.pop();
+                    i = quantifiedAtom(regex, i + 1, current, inner.unbounded && !inner.atomic, risks, inner.start);
+                }
+                default -> i = quantifiedAtom(regex, i + 1, current, false, risks, -1);
+            }
+        }
+        return risks;
+    }
+
+    /**
+     * Reads the quantifier, if any, following an atom that ends just before the given index, and updates
+     * the enclosing group. Returns the index just past the quantifier.
+     */
+    private static int quantifiedAtom(String regex, int i, Group enclosing, boolean containsUnbounded,
+                                      List<String> risks, int groupStart) {
+        long max = 1;
+        boolean unbounded = false;
+        if (i < regex.length()) {
+            char q = regex.charAt(i);
+            if (q == '*' || q == '+') {
+                unbounded = true;
+                i++;
+            } else if (q == '?') {
+                i++;
+            } else if (q == '{') {
+                int close = regex.indexOf('}', i);
+                if (close > 0) {
+                    String[] bounds = regex.substring(i + 1, close).split(",", -1);
+                    unbounded = bounds.length > 1 && bounds[1].isBlank();
+                    max = unbounded ? Long.MAX_VALUE : parseBound(bounds[bounds.length - 1]);
+                    i = close + 1;
+                }
+            }
+        }
+
+        boolean possessive = i < regex.length() && regex.charAt(i) == '+';
+        if (possessive || (i < regex.length() && regex.charAt(i) == '?')) {
+            i++;
+        }
+
+        boolean repeats = unbounded || max > 1;
+        if (containsUnbounded && repeats && !possessive) {
+            risks.add(String.format("Nested quantifier: group at index %d repeats an unbounded quantifier", groupStart));
+        }
+        if ((unbounded && !possessive) || containsUnbounded) {
+            enclosing.unbounded = true;
+        }
+        return i;
+    }
+
+    private static long parseBound(String bound) {
+        try {
+            return Long.parseLong(bound.trim());
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Returns the index of the first character inside the group opening at the given parenthesis,
+     * past any {@code ?:}, lookaround, atomic, named or inline-flag prefix.
+     */
+    private static int skipGroupPrefix(String regex, int i) {
+        int j = i + 1;
+        if (j >= regex.length() || regex.charAt(j) != '?') {
+            return j;
+        }
+        j++;
+        if (regex.startsWith("<=", j) || regex.startsWith("<!", j)) {
+            return j + 2;
+        }
+        if (j < regex.length() && regex.charAt(j) == '<') {
+            int close = regex.indexOf('>', j);
+            return close < 0 ? regex.length() : close + 1;
+        }
+        while (j < regex.length() && (Character.isLetter(regex.charAt(j)) || regex.charAt(j) == '-')) {
+            j++;
+        }
+        return j < regex.length() && ":=!>".indexOf(regex.charAt(j)) >= 0 ? j + 1 : j;
+    }
+
+    private static int skipEscape(String regex, int i) {
+        if (regex.startsWith("\\Q", i)) {
+            int end = regex.indexOf("\\E", i + 2);
+            return end < 0 ? regex.length() : end + 2;
+        }
+        int j = Math.min(regex.length(), i + 2);
+        if (j < regex.length() && regex.charAt(j) == '{' && "pPxN".indexOf(regex.charAt(i + 1)) >= 0) {
+            int close = regex.indexOf('}', j);
+            return close < 0 ? regex.length() : close + 1;
+        }
+        return j;
+    }
+
+    private static int skipClass(String regex, int i) {
+        int j = i + 1;
+        if (j < regex.length() && regex.charAt(j) == '^') {
+            j++;
+        }
+        if (j < regex.length() && regex.charAt(j) == ']') {
+            j++;
+        }
+        while (j < regex.length()) {
+            char c = regex.charAt(j);
+            if (c == '\\') {
+                j = skipEscape(regex, j);
+            } else if (c == '[') {
+                j = skipClass(regex, j);
+            } else if (c == ']') {
+                return j + 1;
+            } else {
+                j++;
+            }
+        }
+        return j;
+    }
+
+    /**
+     * A group being scanned, remembering whether anything inside it repeats without bound.
+     */
+    private static final class Group {
+        private final int start;
+        private final boolean atomic;
+        private boolean unbounded;
+
+        Group(int start, boolean atomic) {
+            this.start = start;
+            this.atomic = atomic;
+        }
+    }
+}
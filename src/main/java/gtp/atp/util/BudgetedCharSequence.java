@@ -0,0 +1,134 @@
+package gtp.atp.util;
+
+import gtp.atp.exception.RegexBudgetExceededException;
+import gtp.atp.model.ExecutionBudget;
+
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * A {@link CharSequence} view that makes regex matching over it abortable.
+ * The regex engine reads its input only through {@link #charAt(int)}, so counting those reads bounds
+ * the work of any match, however badly the pattern backtracks. Every few thousand reads the deadline
+ * and the current thread's interrupt flag are checked as well, and a breach of any limit throws
+ * {@link RegexBudgetExceededException} out of the matcher. An optional progress listener is told,
+ * at the same interval, which index the engine is reading, which approximates how far a scan has got.
+ *
+ * <p>Sub-sequences and {@link #toString()} go straight to the wrapped sequence, so extracting matched
+ * text does not count against the budget. Like a {@link java.util.regex.Matcher}, an instance is meant
+ * to be used by one thread at a time.
+ */
+public final class BudgetedCharSequence implements CharSequence {
+    private static final int CHECK_INTERVAL = 4096;
+
+    private final CharSequence delegate;
+    private final Meter meter;
+
+    /**
+     * Wraps a sequence with a budget that starts counting now.
+     *
+     * @param delegate the sequence to read from (cannot be null)
+     * @param budget the limits to enforce (cannot be null)
+     * @throws NullPointerException if either parameter is null
+     */
+    public BudgetedCharSequence(CharSequence delegate, ExecutionBudget budget) {
+        this(delegate, new Meter(Objects.requireNonNull(budget, "Budget cannot be null"), null));
+    }
+
+    /**
+     * Wraps a sequence with a budget that starts counting now, reporting scan progress to a listener.
+     * The listener runs on the matching thread, so it must be cheap and thread-safe.
+     *
+     * @param delegate the sequence to read from (cannot be null)
+     * @param budget the limits to enforce (cannot be null)
+     * @param progressListener receives the index being read every few thousand reads (cannot be null)
+     * @throws NullPointerException if any parameter is null
+     */
+    public BudgetedCharSequence(CharSequence delegate, ExecutionBudget budget, IntConsumer progressListener) {
+        this(delegate, new Meter(Objects.requireNonNull(budget, "Budget cannot be null"),
+                Objects.requireNonNull(progressListener, "Progress listener cannot be null")));
+    }
+
+    private BudgetedCharSequence(CharSequence delegate, Meter meter) {
+        this.delegate = Objects.requireNonNull(delegate, "Delegate sequence cannot be null");
+        this.meter = meter;
+    }
+
+    /**
+     * Wraps another sequence so that reads from it draw on this sequence's budget and deadline.
+     * Used to spread one operation's budget over many inputs, such as the lines of a file.
+     *
+     * @param next the sequence to read from (cannot be null)
+     * @return a budgeted view of the sequence sharing this budget
+     * @throws NullPointerException if next is null
+     */
+    public BudgetedCharSequence wrap(CharSequence next) {
+        return new BudgetedCharSequence(next, meter);
+    }
+
+    /**
+     * Gets the number of characters read so far under this budget.
+     *
+     * @return the character read count
+     */
+    public long getCharAccesses() {
+        return meter.accesses;
+    }
+
+    @Override
+    public char charAt(int index) {
+        meter.tick(index);
+        return delegate.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return delegate.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return delegate.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+
+    /**
+     * The read counter and deadline shared by every view over one budget.
+     */
+    private static final class Meter {
+        private final long maxAccesses;
+        private final boolean hasDeadline;
+        private final long deadline;
+        private final IntConsumer progressListener;
+        private long accesses;
+
+        Meter(ExecutionBudget budget, IntConsumer progressListener) {
+            this.progressListener = progressListener;
+            this.maxAccesses = budget.maxCharAccesses();
+            this.hasDeadline = budget.timeout() != null;
+            this.deadline = hasDeadline ? System.nanoTime() + budget.timeout().toNanos() : 0;
+        }
+
+        void tick(int index) {
+            if (++accesses > maxAccesses) {
+                throw new RegexBudgetExceededException(RegexBudgetExceededException.Reason.CHAR_ACCESS_LIMIT, accesses);
+            }
+            if ((accesses & (CHECK_INTERVAL - 1)) == 0) {
+                // The interrupt flag is left set so the caller can still observe the cancellation
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new RegexBudgetExceededException(RegexBudgetExceededException.Reason.INTERRUPTED, accesses);
+                }
+                if (hasDeadline && System.nanoTime() - deadline > 0) {
+                    throw new RegexBudgetExceededException(RegexBudgetExceededException.Reason.TIMEOUT, accesses);
+                }
+                if (progressListener != null) {
+                    progressListener.accept(index);
+                }
+            }
+        }
+    }
+}
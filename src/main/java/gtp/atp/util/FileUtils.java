@@ -19,6 +19,18 @@ public final class FileUtils {
         return Files.readAllLines(filePath);
     }
 
+    /**
+     * Reads a whole file into a string.
+     * Suitable for small files that are processed as a single document.
+     */
+    public String readString(String path) throws IOException {
+        Path filePath = Paths.get(path);
+        if (Files.notExists(filePath)) {
+            throw new NoSuchFileException("File does not exist: " + path);
+        }
+        return Files.readString(filePath);
+    }
+
     /**
      * Reads a file using a Stream (better for large files).
      * Caller must close the stream (or use try-with-resources).
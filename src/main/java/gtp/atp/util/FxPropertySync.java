@@ -0,0 +1,53 @@
+package gtp.atp.util;
+
+import javafx.application.Platform;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes updates of JavaFX properties from worker threads to the JavaFX application thread in batches.
+ * Updates submitted while a batch is already scheduled join that batch, so a burst of changes from
+ * many threads costs a single {@link Platform#runLater(Runnable)} instead of one per change.
+ *
+ * <p>When the JavaFX toolkit is not running, as in the console interface, there is no application
+ * thread and updates run on the submitting thread instead. The toolkit is never started on demand.
+ */
+public final class FxPropertySync {
+    private static final Queue<Runnable> PENDING = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean DRAIN_SCHEDULED = new AtomicBoolean();
+
+    private FxPropertySync() {
+        throw new AssertionError("Cannot instantiate utility class");
+    }
+
+    /**
+     * Schedules a property update to run on the JavaFX application thread.
+     *
+     * @param update the update to run (cannot be null)
+     * @throws NullPointerException if update is null
+     */
+    public static void submit(Runnable update) {
+        Objects.requireNonNull(update, "Update cannot be null");
+        PENDING.add(update);
+        if (DRAIN_SCHEDULED.compareAndSet(false, true)) {
+            try {
+                Platform.runLater(FxPropertySync::drain);
+            } catch (IllegalStateException e) {
+                // Toolkit not initialized
+                drain();
+            }
+        }
+    }
+
+    private static void drain() {
+        // Cleared before polling, so an update queued after the last poll schedules a new drain
+        DRAIN_SCHEDULED.set(false);
+        Runnable update;
+        while ((update = PENDING.poll()) != null) {
+            update.run();
+        }
+    }
+}
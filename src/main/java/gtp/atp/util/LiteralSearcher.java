@@ -0,0 +1,101 @@
+package gtp.atp.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Finds occurrences of a fixed string without the regex engine.
+ * {@link String} inputs are searched with {@link String#indexOf(String, int)}, which the JVM
+ * implements with vectorized intrinsics; other character sequences are searched with
+ * Boyer-Moore-Horspool, using a shift table indexed by the low byte of each character.
+ * Occurrences are reported left to right without overlap, as a {@code Matcher.find()} loop
+ * over the quoted literal would report them.
+ */
+public final class LiteralSearcher {
+    private static final int TABLE_SIZE = 256;
+
+    private final String literal;
+    private final int[] shifts;
+
+    /**
+     * Constructs a searcher for the given literal.
+     *
+     * @param literal the text to search for (cannot be null or empty)
+     * @throws IllegalArgumentException if literal is null or empty
+     */
+    public LiteralSearcher(String literal) {
+        if (literal == null || literal.isEmpty()) {
+            throw new IllegalArgumentException("Literal cannot be null or empty");
+        }
+        this.literal = literal;
+
+        // Characters sharing a low byte share a slot, which keeps the smallest and therefore safe shift
+        int last = literal.length() - 1;
+        this.shifts = new int[TABLE_SIZE];
+        Arrays.fill(shifts, literal.length());
+        for (int k = 0; k < last; k++) {
+            shifts[literal.charAt(k) & (TABLE_SIZE - 1)] = last - k;
+        }
+    }
+
+    /**
+     * Gets the literal this searcher looks for.
+     *
+     * @return the literal text
+     */
+    public String getLiteral() {
+        return literal;
+    }
+
+    /**
+     * Finds the first occurrence of the literal at or after an index.
+     *
+     * @param text the text to search (cannot be null)
+     * @param fromIndex the index to start searching from
+     * @return the index of the occurrence, or -1 if there is none
+     * @throws NullPointerException if text is null
+     */
+    public int indexOf(CharSequence text, int fromIndex) {
+        Objects.requireNonNull(text, "Text cannot be null");
+        if (text instanceof String string) {
+            return string.indexOf(literal, fromIndex);
+        }
+
+        int last = literal.length() - 1;
+        char lastChar = literal.charAt(last);
+        int limit = text.length() - literal.length();
+        int i = Math.max(fromIndex, 0);
+        while (i <= limit) {
+            char c = text.charAt(i + last);
+            if (c == lastChar && matchesAt(text, i, last)) {
+                return i;
+            }
+            i += shifts[c & (TABLE_SIZE - 1)];
+        }
+        return -1;
+    }
+
+    /**
+     * Counts the non-overlapping occurrences of the literal.
+     *
+     * @param text the text to search (cannot be null)
+     * @return the number of occurrences
+     * @throws NullPointerException if text is null
+     */
+    public int count(CharSequence text) {
+        int count = 0;
+        for (int i = indexOf(text, 0); i >= 0; i = indexOf(text, i + literal.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    private boolean matchesAt(CharSequence text, int start, int length) {
+        for (int k = 0; k < length; k++) {
+            if (text.charAt(start + k) != literal.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
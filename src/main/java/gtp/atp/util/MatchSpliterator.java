@@ -0,0 +1,64 @@
+package gtp.atp.util;
+
+import gtp.atp.model.MatchResult;
+
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A lazy {@link Spliterator} over the matches of a pattern in an input sequence.
+ * Each call to {@link #tryAdvance(Consumer)} runs the matcher only as far as the next match,
+ * so short-circuiting stream operations such as {@code limit} or {@code findFirst} stop the scan
+ * as soon as the consumer is done.
+ */
+public final class MatchSpliterator extends Spliterators.AbstractSpliterator<MatchResult> {
+    private final CharSequence input;
+    private final Matcher matcher;
+    private final String patternUsed;
+
+    /**
+     * Constructs a spliterator over the matches of the given pattern in the input.
+     *
+     * @param pattern the compiled pattern to match with
+     * @param input the sequence to search in
+     * @throws NullPointerException if either parameter is null
+     */
+    public MatchSpliterator(Pattern pattern, CharSequence input) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        Objects.requireNonNull(pattern, "Pattern cannot be null");
+        Objects.requireNonNull(input, "Input sequence cannot be null");
+        this.input = input;
+        this.matcher = pattern.matcher(input);
+        this.patternUsed = pattern.pattern();
+    }
+
+    /**
+     * Creates a sequential stream over the matches of the given pattern in the input.
+     *
+     * @param pattern the compiled pattern to match with
+     * @param input the sequence to search in
+     * @return a lazy stream of match results in input order
+     * @throws NullPointerException if either parameter is null
+     */
+    public static Stream<MatchResult> stream(Pattern pattern, CharSequence input) {
+        return StreamSupport.stream(new MatchSpliterator(pattern, input), false);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super MatchResult> action) {
+        Objects.requireNonNull(action, "Action cannot be null");
+        if (!matcher.find()) {
+            return false;
+        }
+
+        // The result refers to the input by offsets; its text is only copied if the consumer asks for it
+        action.accept(MatchResult.ofSpan(input, matcher.start(), matcher.end(), patternUsed));
+        return true;
+    }
+}
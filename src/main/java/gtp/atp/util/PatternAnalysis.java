@@ -0,0 +1,331 @@
+package gtp.atp.util;
+
+import java.util.regex.Pattern;
+
+/**
+ * The result of analyzing a regular expression for text that can be found without the regex engine.
+ * A pattern made only of literal characters, including escaped metacharacters and {@code \Q...\E}
+ * quotes, matches exactly that text, so it can be searched with plain string search. Any other pattern
+ * without top-level alternation has required substrings, runs of literal characters that every match
+ * must contain; an input lacking the longest of them cannot match at all.
+ *
+ * @param literal the text matched by a pattern made only of literal characters, or null if the
+ *                pattern contains regex operators
+ * @param requiredSubstring the longest literal run every match contains, or null if none is known
+ */
+public record PatternAnalysis(String literal, String requiredSubstring) {
+    private static final PatternAnalysis NONE = new PatternAnalysis(null, null);
+
+    /**
+     * Flags that change which characters a literal matches, so literal text cannot be derived.
+     */
+    private static final int UNSUPPORTED_FLAGS = Pattern.CASE_INSENSITIVE | Pattern.COMMENTS | Pattern.CANON_EQ;
+
+    /**
+     * Checks whether the pattern matches only one fixed text.
+     *
+     * @return true if {@link #literal()} is available
+     */
+    public boolean isLiteral() {
+        return literal != null;
+    }
+
+    /**
+     * Checks whether a required substring is known.
+     *
+     * @return true if {@link #requiredSubstring()} is available
+     */
+    public boolean hasRequiredSubstring() {
+        return requiredSubstring != null;
+    }
+
+    /**
+     * Checks whether an input can be ruled out without running the regex engine.
+     *
+     * @param input the input to check
+     * @return true if the input lacks the required substring and therefore has no match
+     */
+    public boolean cannotMatch(String input) {
+        return requiredSubstring != null && !input.contains(requiredSubstring);
+    }
+
+    /**
+     * Analyzes a compiled pattern.
+     *
+     * @param pattern the pattern to analyze
+     * @return the analysis of the pattern's source and flags
+     */
+    public static PatternAnalysis of(Pattern pattern) {
+        return analyze(pattern.pattern(), pattern.flags());
+    }
+
+    /**
+     * Analyzes a regular expression. The expression is expected to be valid; the analysis of an
+     * invalid one is meaningless.
+     *
+     * @param regex the regular expression
+     * @param flags the match flags it is compiled with
+     * @return the analysis, with null fields for anything that could not be determined
+     */
+    public static PatternAnalysis analyze(String regex, int flags) {
+        if ((flags & UNSUPPORTED_FLAGS) != 0 || regex.isEmpty()) {
+            return NONE;
+        }
+        if ((flags & Pattern.LITERAL) != 0) {
+            return ofLiteral(regex);
+        }
+        return new Scanner(regex).scan();
+    }
+
+    private static PatternAnalysis ofLiteral(String literal) {
+        // A literal split inside a surrogate pair can match where the regex engine would not
+        if (Character.isLowSurrogate(literal.charAt(0))
+                || Character.isHighSurrogate(literal.charAt(literal.length() - 1))) {
+            return new PatternAnalysis(null, literal);
+        }
+        return new PatternAnalysis(literal, literal);
+    }
+
+    /**
+     * A single left-to-right pass over the top level of a pattern, collecting runs of literal characters.
+     * Groups and character classes are skipped whole, and any construct it does not understand ends
+     * the current run, so the result errs towards reporting less rather than wrong text.
+     */
+    private static final class Scanner {
+        private final String regex;
+        private final StringBuilder run = new StringBuilder();
+        private String longest = "";
+        private boolean literal = true;
+        private int lastAtomLength;
+        private int i;
+
+        Scanner(String regex) {
+            this.regex = regex;
+        }
+
+        PatternAnalysis scan() {
+            int n = regex.length();
+            while (i < n) {
+                char c = regex.charAt(i);
+                switch (c) {
+                    case '\\' -> escape();
+                    case '[' -> {
+                        i = skipClass(i);
+                        other();
+                    }
+                    case '(' -> {
+                        if (isInlineFlags(i)) {
+                            // Flags such as (?i) or (?x) change how the rest of the pattern reads
+                            return NONE;
+                        }
+                        i = skipGroup(i);
+                        other();
+                    }
+                    case '|' -> {
+                        return NONE;
+                    }
+                    case '?', '*', '+', '{' -> quantifier();
+                    case '.', '^', '$', ')', ']', '}' -> {
+                        i++;
+                        other();
+                    }
+                    default -> {
+                        if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(regex.charAt(i + 1))) {
+                            append(regex.substring(i, i + 2), 2);
+                            i += 2;
+                        } else {
+                            append(String.valueOf(c), 1);
+                            i++;
+                        }
+                    }
+                }
+            }
+
+            if (literal) {
+                return run.isEmpty() ? NONE : ofLiteral(run.toString());
+            }
+            endRun();
+            return new PatternAnalysis(null, longest.isEmpty() ? null : longest);
+        }
+
+        private void escape() {
+            if (i + 1 >= regex.length()) {
+                i++;
+                other();
+                return;
+            }
+
+            char d = regex.charAt(i + 1);
+            if (d == 'Q') {
+                int end = regex.indexOf("\\E", i + 2);
+                String quoted = end < 0 ? regex.substring(i + 2) : regex.substring(i + 2, end);
+                i = end < 0 ? regex.length() : end + 2;
+                if (!quoted.isEmpty()) {
+                    // A following quantifier applies only to the last quoted code point
+                    int last = quoted.offsetByCodePoints(quoted.length(), -1);
+                    run.append(quoted, 0, last);
+                    append(quoted.substring(last), quoted.length() - last);
+                }
+                return;
+            }
+            if (!Character.isLetterOrDigit(d)) {
+                append(String.valueOf(d), 1);
+                i += 2;
+                return;
+            }
+
+            int control = "tnrfae".indexOf(d);
+            if (control >= 0) {
+                append(String.valueOf("\t\n\r\f\u0007\u001B".charAt(control)), 1);
+                i += 2;
+                return;
+            }
+
+            i = skipEscape(i);
+            other();
+        }
+
+        private void quantifier() {
+            literal = false;
+            // The quantified atom may repeat or vanish, so it cannot join the literal run on either side
+            run.setLength(run.length() - lastAtomLength);
+            endRun();
+
+            if (regex.charAt(i) == '{') {
+                int close = regex.indexOf('}', i);
+                i = close < 0 ? regex.length() : close + 1;
+            } else {
+                i++;
+            }
+            if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+                i++;
+            }
+        }
+
+        private void append(String text, int atomLength) {
+            run.append(text);
+            lastAtomLength = atomLength;
+        }
+
+        private void other() {
+            literal = false;
+            endRun();
+        }
+
+        private void endRun() {
+            if (run.length() > longest.length()) {
+                longest = run.toString();
+            }
+            run.setLength(0);
+            lastAtomLength = 0;
+        }
+
+        private boolean isInlineFlags(int at) {
+            if (!regex.startsWith("(?", at) || at + 2 >= regex.length()) {
+                return false;
+            }
+            char c = regex.charAt(at + 2);
+            return c == '-' || (Character.isLetter(c) && c != '<');
+        }
+
+        /**
+         * Returns the index just past the escape sequence starting at the given backslash.
+         */
+        private int skipEscape(int at) {
+            int j = at + 2;
+            char d = regex.charAt(at + 1);
+            switch (d) {
+                case 'p', 'P', 'x', 'N' -> {
+                    if (j < regex.length() && regex.charAt(j) == '{') {
+                        int close = regex.indexOf('}', j);
+                        return close < 0 ? regex.length() : close + 1;
+                    }
+                    return Math.min(regex.length(), d == 'x' ? j + 2 : j + 1);
+                }
+                case 'u' -> {
+                    return Math.min(regex.length(), j + 4);
+                }
+                case 'c' -> {
+                    return Math.min(regex.length(), j + 1);
+                }
+                case 'k' -> {
+                    int close = regex.indexOf('>', j);
+                    return close < 0 ? regex.length() : close + 1;
+                }
+                case '0' -> {
+                    int limit = Math.min(regex.length(), j + 3);
+                    while (j < limit && regex.charAt(j) >= '0' && regex.charAt(j) <= '7') {
+                        j++;
+                    }
+                    return j;
+                }
+                default -> {
+                    if (Character.isDigit(d)) {
+                        while (j < regex.length() && Character.isDigit(regex.charAt(j))) {
+                            j++;
+                        }
+                    }
+                    return j;
+                }
+            }
+        }
+
+        /**
+         * Returns the index just past the character class starting at the given bracket.
+         */
+        private int skipClass(int at) {
+            int j = at + 1;
+            if (j < regex.length() && regex.charAt(j) == '^') {
+                j++;
+            }
+            if (j < regex.length() && regex.charAt(j) == ']') {
+                j++;
+            }
+            while (j < regex.length()) {
+                char c = regex.charAt(j);
+                if (c == '\\') {
+                    j = skipQuotedOrEscaped(j);
+                } else if (c == '[') {
+                    j = skipClass(j);
+                } else if (c == ']') {
+                    return j + 1;
+                } else {
+                    j++;
+                }
+            }
+            return j;
+        }
+
+        /**
+         * Returns the index just past the group starting at the given parenthesis.
+         */
+        private int skipGroup(int at) {
+            int depth = 0;
+            int j = at;
+            while (j < regex.length()) {
+                char c = regex.charAt(j);
+                if (c == '\\') {
+                    j = skipQuotedOrEscaped(j);
+                } else if (c == '[') {
+                    j = skipClass(j);
+                } else {
+                    if (c == '(') {
+                        depth++;
+                    } else if (c == ')' && --depth == 0) {
+                        return j + 1;
+                    }
+                    j++;
+                }
+            }
+            return j;
+        }
+
+        private int skipQuotedOrEscaped(int at) {
+            if (regex.startsWith("\\Q", at)) {
+                int end = regex.indexOf("\\E", at + 2);
+                return end < 0 ? regex.length() : end + 2;
+            }
+            return Math.min(regex.length(), at + 2);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package gtp.atp.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A thread-safe, size-bounded cache of compiled {@link Pattern} objects.
+ * Entries are keyed by the pattern string together with its compile flags and are
+ * evicted in least-recently-used order once the configured capacity is reached.
+ * Each entry also keeps the {@link PatternAnalysis} of its pattern, computed once at compile time,
+ * and for a literal pattern the {@link LiteralSearcher} that finds it.
+ * Hit, miss and eviction counters are kept for monitoring.
+ */
+public final class PatternCache {
+    /**
+     * Default number of compiled patterns kept by a cache.
+     */
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private final int capacity;
+    private final Map<Key, Entry> patterns;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs a cache holding at most {@link #DEFAULT_CAPACITY} patterns.
+     */
+    public PatternCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a cache holding at most the given number of patterns.
+     *
+     * @param capacity the maximum number of compiled patterns to keep (must be positive)
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public PatternCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        this.capacity = capacity;
+        this.patterns = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, PatternCache.Entry> eldest) {
+                if (size() > PatternCache.this.capacity) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the compiled form of the given pattern without flags, compiling and caching it on a miss.
+     *
+     * @param regex the regular expression pattern
+     * @return the compiled pattern
+     * @throws PatternSyntaxException if the pattern is invalid
+     * @throws NullPointerException if regex is null
+     */
+    public Pattern get(String regex) {
+        return get(regex, 0);
+    }
+
+    /**
+     * Returns the compiled form of the given pattern and flags, compiling and caching it on a miss.
+     * Invalid patterns are never cached.
+     *
+     * @param regex the regular expression pattern
+     * @param flags the match flags, as accepted by {@link Pattern#compile(String, int)}
+     * @return the compiled pattern
+     * @throws PatternSyntaxException if the pattern is invalid
+     * @throws NullPointerException if regex is null
+     */
+    public Pattern get(String regex, int flags) {
+        return getEntry(regex, flags).pattern();
+    }
+
+    /**
+     * Returns the compiled form of the given pattern and flags together with its analysis,
+     * compiling, analyzing and caching it on a miss. Invalid patterns are never cached.
+     *
+     * @param regex the regular expression pattern
+     * @param flags the match flags, as accepted by {@link Pattern#compile(String, int)}
+     * @return the cache entry holding the compiled pattern and its analysis
+     * @throws PatternSyntaxException if the pattern is invalid
+     * @throws NullPointerException if regex is null
+     */
+    public Entry getEntry(String regex, int flags) {
+        Key key = new Key(Objects.requireNonNull(regex, "Regex pattern cannot be null"), flags);
+
+        Entry entry;
+        synchronized (patterns) {
+            entry = patterns.get(key);
+        }
+        if (entry != null) {
+            hits.increment();
+            return entry;
+        }
+
+        // Compile outside the lock so a slow pattern does not block other lookups
+        misses.increment();
+        Pattern pattern = Pattern.compile(regex, flags);
+        PatternAnalysis analysis = PatternAnalysis.analyze(regex, flags);
+        LiteralSearcher searcher = analysis.isLiteral() && !analysis.literal().isEmpty()
+                ? new LiteralSearcher(analysis.literal())
+                : null;
+        Entry compiled = new Entry(pattern, analysis, searcher);
+        synchronized (patterns) {
+            Entry existing = patterns.putIfAbsent(key, compiled);
+            return existing != null ? existing : compiled;
+        }
+    }
+
+    /**
+     * Removes all cached patterns. Counters are left untouched.
+     */
+    public void clear() {
+        synchronized (patterns) {
+            patterns.clear();
+        }
+    }
+
+    /**
+     * Gets the number of patterns currently cached.
+     *
+     * @return the cache size
+     */
+    public int size() {
+        synchronized (patterns) {
+            return patterns.size();
+        }
+    }
+
+    /**
+     * Gets the maximum number of patterns this cache keeps.
+     *
+     * @return the cache capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Takes a snapshot of the cache counters.
+     *
+     * @return the current statistics
+     */
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size());
+    }
+
+    /**
+     * Cache key combining the pattern string and its compile flags.
+     */
+    private record Key(String regex, int flags) {
+    }
+
+    /**
+     * A cached pattern together with its analysis.
+     *
+     * @param pattern the compiled pattern
+     * @param analysis the literal analysis of the pattern
+     * @param literalSearcher the searcher for the pattern's literal, or null if the pattern is not
+     *                        a non-empty literal
+     */
+    public record Entry(Pattern pattern, PatternAnalysis analysis, LiteralSearcher literalSearcher) {
+    }
+
+    /**
+     * Point-in-time statistics of a {@link PatternCache}.
+     *
+     * @param hits number of lookups served from the cache
+     * @param misses number of lookups that required compilation
+     * @param evictions number of entries removed to respect the capacity
+     * @param size number of entries cached when the snapshot was taken
+     */
+    public record Stats(long hits, long misses, long evictions, int size) {
+
+        /**
+         * Gets the fraction of lookups served from the cache.
+         *
+         * @return the hit rate between 0 and 1, or 0 if there were no lookups
+         */
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+}
@@ -1,41 +1,137 @@
 package gtp.atp.util;
 
 import gtp.atp.exception.InvalidRegexException;
+import gtp.atp.model.MatchResult;
+import gtp.atp.model.MatchSpans;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.*;
+import java.util.stream.Stream;
 
 /**
  * A utility class providing helper methods for working with regular expressions.
+ * Patterns that are plain literals are searched with {@link LiteralSearcher} instead of the regex
+ * engine, and inputs lacking a pattern's required substring are rejected before any matching starts.
  */
 public final class RegexUtils {
+    private static final PatternCache PATTERN_CACHE = new PatternCache();
 
     private RegexUtils() {
         throw new AssertionError("Cannot instantiate utility class");
     }
 
     /**
-     * Validates whether a given string is a valid regular expression pattern.
+     * Gets the shared cache of compiled patterns used by every method of this class.
      *
-     * @param regex the regular expression pattern to validate
-     * @return true if the pattern is syntactically valid
+     * @return the shared pattern cache
+     */
+    public static PatternCache getPatternCache() {
+        return PATTERN_CACHE;
+    }
+
+    /**
+     * Compiles a regular expression pattern through the shared pattern cache.
+     *
+     * @param regex the regular expression pattern to compile
+     * @return the compiled pattern
      * @throws InvalidRegexException if the pattern is invalid
-     * @throws NullPointerException if the input regex string is null
+     * @throws NullPointerException if the input regex string is null or empty
      */
-    public static boolean isValidRegex(String regex) throws InvalidRegexException {
+    public static Pattern compile(String regex) throws InvalidRegexException {
+        return compile(regex, 0);
+    }
+
+    /**
+     * Compiles a regular expression pattern with the given flags through the shared pattern cache.
+     *
+     * @param regex the regular expression pattern to compile
+     * @param flags the match flags, as accepted by {@link Pattern#compile(String, int)}
+     * @return the compiled pattern
+     * @throws InvalidRegexException if the pattern is invalid
+     * @throws NullPointerException if the input regex string is null or empty
+     */
+    public static Pattern compile(String regex, int flags) throws InvalidRegexException {
+        return entry(regex, flags).pattern();
+    }
+
+    /**
+     * Gets the literal analysis of a regular expression pattern, compiling it through the shared
+     * pattern cache if needed.
+     *
+     * @param regex the regular expression pattern to analyze
+     * @return the analysis of the pattern
+     * @throws InvalidRegexException if the pattern is invalid
+     * @throws NullPointerException if the input regex string is null or empty
+     */
+    public static PatternAnalysis analyze(String regex) throws InvalidRegexException {
+        return entry(regex, 0).analysis();
+    }
+
+    private static PatternCache.Entry entry(String regex, int flags) throws InvalidRegexException {
         if (regex == null || regex.trim().isEmpty()) {
             throw new NullPointerException("Regex pattern cannot be null or empty");
         }
 
         try {
-            Pattern.compile(regex);
-            return true;
-        } catch (PatternSyntaxException e) {
+            return PATTERN_CACHE.getEntry(regex, flags);
+        } catch (IllegalArgumentException e) {
             throw new InvalidRegexException(regex, e);
         }
     }
 
+    /**
+     * Checks whether a replacement string is copied verbatim, with no group references or escapes.
+     *
+     * @param replacement the replacement string
+     * @return true if the replacement contains neither {@code $} nor a backslash
+     */
+    public static boolean isLiteralReplacement(String replacement) {
+        return replacement.indexOf('$') < 0 && replacement.indexOf('\\') < 0;
+    }
+
+    /**
+     * Checks whether a regex uses the {@code \G} anchor outside a quoted section. Such a pattern
+     * depends on where the previous match ended, so it cannot be searched one window at a time.
+     *
+     * @param regex the regular expression pattern to check (cannot be null)
+     * @return true if the pattern contains {@code \G}
+     * @throws NullPointerException if regex is null
+     */
+    public static boolean usesPreviousMatchAnchor(String regex) {
+        for (int i = 0; i < regex.length() - 1; i++) {
+            if (regex.charAt(i) != '\\') {
+                continue;
+            }
+            char escaped = regex.charAt(++i);
+            if (escaped == 'G') {
+                return true;
+            }
+            if (escaped == 'Q') {
+                int end = regex.indexOf("\\E", i + 1);
+                if (end < 0) {
+                    return false;
+                }
+                i = end + 1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Validates whether a given string is a valid regular expression pattern.
+     * Valid patterns are kept in the shared pattern cache, so a later operation does not compile them again.
+     *
+     * @param regex the regular expression pattern to validate
+     * @return true if the pattern is syntactically valid
+     * @throws InvalidRegexException if the pattern is invalid
+     * @throws NullPointerException if the input regex string is null
+     */
+    public static boolean isValidRegex(String regex) throws InvalidRegexException {
+        compile(regex);
+        return true;
+    }
+
     /**
      * Alternative version that returns false instead of throwing exception for invalid patterns
      * Used for simple boolean checks
@@ -50,7 +146,7 @@ public final class RegexUtils {
         }
 
         try {
-            Pattern.compile(regex);
+            PATTERN_CACHE.get(regex);
             return true;
         } catch (PatternSyntaxException e) {
             return false;
@@ -71,11 +167,7 @@ public final class RegexUtils {
             throw new NullPointerException("Input string cannot be null");
         }
 
-        if (isValidRegex(regex)) {
-            return Pattern.matches(regex, input);
-        }
-
-        return false;
+        return compile(regex).matcher(input).matches();
     }
 
     /**
@@ -93,19 +185,114 @@ public final class RegexUtils {
         }
 
         List<String> matches = new ArrayList<>();
+        PatternCache.Entry entry = entry(regex, 0);
+        PatternAnalysis analysis = entry.analysis();
 
-        if (isValidRegex(regex)) {
-            Pattern pattern = Pattern.compile(regex);
-            Matcher matcher = pattern.matcher(input);
-
-            while (matcher.find()) {
-                matches.add(matcher.group());
+        if (analysis.isLiteral()) {
+            String literal = analysis.literal();
+            for (int i = input.indexOf(literal); i >= 0; i = input.indexOf(literal, i + literal.length())) {
+                matches.add(literal);
             }
+            return matches;
+        }
+        if (analysis.cannotMatch(input)) {
+            return matches;
+        }
+
+        Matcher matcher = entry.pattern().matcher(input);
+
+        while (matcher.find()) {
+            matches.add(matcher.group());
         }
 
         return matches;
     }
 
+    /**
+     * Lazily streams all matches of a pattern in an input sequence, with their offsets.
+     * Matches are produced one at a time, so the whole result set is never held in memory
+     * and short-circuiting operations stop the scan early.
+     *
+     * @param regex the regular expression pattern
+     * @param input the sequence to find matches in
+     * @return a sequential stream of match results in input order
+     * @throws InvalidRegexException if the pattern is invalid
+     * @throws NullPointerException if either parameter is null
+     *
+     * @example
+     * // Scans only until the first ten matches have been consumed
+     * RegexUtils.streamMatches("ERROR \\d+", log).limit(10).forEach(System.out::println);
+     */
+    public static Stream<MatchResult> streamMatches(String regex, CharSequence input) throws InvalidRegexException {
+        if (input == null) {
+            throw new NullPointerException("Input string cannot be null");
+        }
+
+        return MatchSpliterator.stream(compile(regex), input);
+    }
+
+    /**
+     * Records the offsets of all matches of a pattern without copying any matched text.
+     * Suited to counting and offset-reporting workloads, which then allocate almost nothing per match.
+     *
+     * @param regex the regular expression pattern
+     * @param input the sequence to find matches in
+     * @return the spans of all matches, pointing into the input
+     * @throws InvalidRegexException if the pattern is invalid
+     * @throws NullPointerException if either parameter is null
+     */
+    public static MatchSpans findAllSpans(String regex, CharSequence input) throws InvalidRegexException {
+        if (input == null) {
+            throw new NullPointerException("Input string cannot be null");
+        }
+
+        PatternCache.Entry entry = entry(regex, 0);
+
+        if (entry.literalSearcher() != null) {
+            return findAllSpans(entry.literalSearcher(), input);
+        }
+
+        return findAllSpans(entry.pattern(), input);
+    }
+
+    /**
+     * Records the offsets of all matches of a compiled pattern without copying any matched text.
+     *
+     * @param pattern the compiled pattern
+     * @param input the sequence to find matches in
+     * @return the spans of all matches, pointing into the input
+     * @throws NullPointerException if either parameter is null
+     */
+    public static MatchSpans findAllSpans(Pattern pattern, CharSequence input) {
+        MatchSpans spans = new MatchSpans(input);
+        Matcher matcher = pattern.matcher(input);
+
+        while (matcher.find()) {
+            spans.add(matcher.start(), matcher.end());
+        }
+
+        return spans;
+    }
+
+    /**
+     * Records the offsets of all non-overlapping occurrences of a literal without using the regex engine.
+     *
+     * @param searcher the searcher for the literal
+     * @param input the sequence to find occurrences in
+     * @return the spans of all occurrences, pointing into the input
+     * @throws NullPointerException if either parameter is null
+     */
+    public static MatchSpans findAllSpans(LiteralSearcher searcher, CharSequence input) {
+        MatchSpans spans = new MatchSpans(input);
+        int length = searcher.getLiteral().length();
+
+        for (int i = searcher.indexOf(input, 0); i >= 0; i = searcher.indexOf(input, i + length)) {
+            spans.add(i, i + length);
+        }
+
+        return spans;
+    }
+
     /**
      * Extracts the first match of a pattern from an input string.
      *
@@ -120,13 +307,20 @@ public final class RegexUtils {
             throw new NullPointerException("Input string cannot be null");
         }
 
-        if (isValidRegex(regex)) {
-            Pattern pattern = Pattern.compile(regex);
-            Matcher matcher = pattern.matcher(input);
+        PatternCache.Entry entry = entry(regex, 0);
+        PatternAnalysis analysis = entry.analysis();
 
-            if (matcher.find()) {
-                return matcher.group();
-            }
+        if (analysis.isLiteral()) {
+            return input.contains(analysis.literal()) ? analysis.literal() : null;
+        }
+        if (analysis.cannotMatch(input)) {
+            return null;
+        }
+
+        Matcher matcher = entry.pattern().matcher(input);
+
+        if (matcher.find()) {
+            return matcher.group();
         }
 
         return null;
@@ -150,11 +344,17 @@ public final class RegexUtils {
             throw new NullPointerException("Replacement string cannot be null");
         }
 
-        if (isValidRegex(regex)) {
-            return Pattern.compile(regex).matcher(input).replaceAll(replacement);
+        PatternCache.Entry entry = entry(regex, 0);
+        PatternAnalysis analysis = entry.analysis();
+
+        if (analysis.isLiteral() && isLiteralReplacement(replacement)) {
+            return input.replace(analysis.literal(), replacement);
+        }
+        if (analysis.cannotMatch(input)) {
+            return input;
         }
 
-        return input; // Should never reach here because isValidRegex throws exception
+        return entry.pattern().matcher(input).replaceAll(replacement);
     }
 
 
@@ -172,11 +372,7 @@ public final class RegexUtils {
             throw new NullPointerException("Input string cannot be null");
         }
 
-        if (isValidRegex(regex)) {
-            return input.split(regex);
-        }
-
-        return new String[] { input }; // Should never reach here because isValidRegex throws exception
+        return compile(regex).split(input);
     }
 
     /**
@@ -193,15 +389,21 @@ public final class RegexUtils {
             throw new NullPointerException("Input string cannot be null");
         }
 
-        int count = 0;
+        PatternCache.Entry entry = entry(regex, 0);
+        PatternAnalysis analysis = entry.analysis();
 
-        if (isValidRegex(regex)) {
-            Pattern pattern = Pattern.compile(regex);
-            Matcher matcher = pattern.matcher(input);
+        if (entry.literalSearcher() != null) {
+            return entry.literalSearcher().count(input);
+        }
+        if (analysis.cannotMatch(input)) {
+            return 0;
+        }
 
-            while (matcher.find()) {
-                count++;
-            }
+        int count = 0;
+        Matcher matcher = entry.pattern().matcher(input);
+
+        while (matcher.find()) {
+            count++;
         }
 
         return count;
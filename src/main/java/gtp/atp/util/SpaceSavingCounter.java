@@ -0,0 +1,288 @@
+package gtp.atp.util;
+
+import gtp.atp.model.WordCount;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Finds the most frequent words of an unbounded stream in one pass and fixed memory, using the
+ * Space-Saving algorithm. At most {@code capacity} words are monitored at a time. A word not yet
+ * monitored takes over the counter of the least frequent monitored word, inheriting its count as
+ * its possible error, so counts may overestimate but never underestimate.
+ *
+ * <p>For a stream of n words, every counter is off by at most n / capacity, and every word occurring
+ * more than n / capacity times is monitored. Choosing a capacity of at least 1 / support therefore
+ * reports every word whose share of the stream exceeds the support.
+ *
+ * <p>Monitored words are found through an open-addressing table keyed by their characters, and the
+ * counters are kept in a min-heap, so each word costs O(log capacity) time and a word already
+ * monitored is counted without allocating. A counter is not thread-safe.
+ */
+public final class SpaceSavingCounter implements WordScanner.WordSink {
+    private final int capacity;
+
+    // Counter ids plus one, so that zero marks a free slot
+    private final int[] slots;
+
+    private final String[] words;
+    private final int[] hashes;
+    private final long[] counts;
+    private final long[] errors;
+    private int used;
+
+    // Min-heap of counter ids by count, and the position of each counter in it
+    private final int[] heap;
+    private final int[] heapPositions;
+
+    private long total;
+
+    /**
+     * Constructs a counter monitoring at most the given number of words.
+     *
+     * @param capacity the number of counters
+     * @throws IllegalArgumentException if capacity is not positive or too large
+     */
+    public SpaceSavingCounter(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 28) {
+            throw new IllegalArgumentException("capacity must be between 1 and " + (1 << 28));
+        }
+        this.capacity = capacity;
+        // Kept at most half full, so probe sequences stay short
+        this.slots = new int[Integer.highestOneBit(capacity) << 2];
+        this.words = new String[capacity];
+        this.hashes = new int[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.heap = new int[capacity];
+        this.heapPositions = new int[capacity];
+    }
+
+    /**
+     * Counts one occurrence of a word.
+     */
+    @Override
+    public void word(char[] chars, int start, int length) {
+        add(chars, start, length, 1);
+    }
+
+    /**
+     * Counts occurrences of a word given as a slice of a character array.
+     *
+     * @param chars the array holding the word (cannot be null)
+     * @param start the index of the word's first character
+     * @param length the number of characters in the word
+     * @param count the number of occurrences to add (must be positive)
+     * @throws NullPointerException if chars is null
+     * @throws IndexOutOfBoundsException if the slice is not within the array
+     * @throws IllegalArgumentException if count is not positive
+     */
+    public void add(char[] chars, int start, int length, long count) {
+        Objects.checkFromIndexSize(start, length, chars.length);
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be greater than 0");
+        }
+        total += count;
+
+        int hash = hash(chars, start, length);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && matches(words[id], chars, start, length)) {
+                counts[id] += count;
+                siftDown(heapPositions[id]);
+                return;
+            }
+        }
+
+        String word = new String(chars, start, length);
+        if (used < capacity) {
+            int id = used++;
+            words[id] = word;
+            hashes[id] = hash;
+            counts[id] = count;
+            slots[slot] = id + 1;
+            heap[id] = id;
+            heapPositions[id] = id;
+            siftUp(id);
+            return;
+        }
+
+        // Replace the least frequent word, which inherits its count as error
+        int id = heap[0];
+        removeSlot(id);
+        words[id] = word;
+        hashes[id] = hash;
+        errors[id] = counts[id];
+        counts[id] += count;
+        insertSlot(id);
+        siftDown(0);
+    }
+
+    /**
+     * Counts one occurrence of a word.
+     *
+     * @param word the word (cannot be null)
+     * @throws NullPointerException if word is null
+     */
+    public void add(String word) {
+        add(word.toCharArray(), 0, word.length(), 1);
+    }
+
+    /**
+     * Gets the number of counters.
+     *
+     * @return the most words monitored at a time
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of words counted so far, including those no longer monitored.
+     *
+     * @return the length of the stream
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Gets the monitored words with the highest counts, from most to least frequent, with words of
+     * equal count in alphabetical order.
+     *
+     * @param k the most words to return
+     * @return up to k word counts, each with its possible error
+     * @throws IllegalArgumentException if k is not positive
+     */
+    public List<WordCount> top(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be greater than 0");
+        }
+        List<WordCount> monitored = monitored();
+        return monitored.size() > k ? List.copyOf(monitored.subList(0, k)) : monitored;
+    }
+
+    /**
+     * Gets the words that may make up more than the given share of the stream, from most to least
+     * frequent. If the capacity is at least 1 / support, no such word is missed; a word listed may
+     * however fall short of the share by its error.
+     *
+     * @param support the share of the stream, greater than 0 and at most 1
+     * @return the word counts above the share, each with its possible error
+     * @throws IllegalArgumentException if support is out of range
+     */
+    public List<WordCount> heavyHitters(double support) {
+        if (!(support > 0 && support <= 1)) {
+            throw new IllegalArgumentException("support must be greater than 0 and at most 1");
+        }
+        double threshold = support * total;
+        List<WordCount> hitters = new ArrayList<>();
+        for (WordCount count : monitored()) {
+            if (count.count() <= threshold) {
+                break;
+            }
+            hitters.add(count);
+        }
+        return hitters;
+    }
+
+    private List<WordCount> monitored() {
+        List<WordCount> monitored = new ArrayList<>(used);
+        for (int id = 0; id < used; id++) {
+            monitored.add(new WordCount(words[id], counts[id], errors[id]));
+        }
+        monitored.sort(Comparator.comparingLong(WordCount::count).reversed().thenComparing(WordCount::word));
+        return monitored;
+    }
+
+    private void insertSlot(int id) {
+        int mask = slots.length - 1;
+        int slot = hashes[id] & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = id + 1;
+    }
+
+    /**
+     * Removes a counter from the slot table, shifting back later entries of its probe sequence
+     * so that none of them becomes unreachable.
+     */
+    private void removeSlot(int id) {
+        int mask = slots.length - 1;
+        int hole = hashes[id] & mask;
+        while (slots[hole] != id + 1) {
+            hole = (hole + 1) & mask;
+        }
+        for (int next = (hole + 1) & mask; slots[next] != 0; next = (next + 1) & mask) {
+            int home = hashes[slots[next] - 1] & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                slots[hole] = slots[next];
+                hole = next;
+            }
+        }
+        slots[hole] = 0;
+    }
+
+    private void siftUp(int i) {
+        int id = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[id]) {
+                break;
+            }
+            place(heap[parent], i);
+            i = parent;
+        }
+        place(id, i);
+    }
+
+    private void siftDown(int i) {
+        int id = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= used) {
+                break;
+            }
+            if (child + 1 < used && counts[heap[child + 1]] < counts[heap[child]]) {
+                child++;
+            }
+            if (counts[heap[child]] >= counts[id]) {
+                break;
+            }
+            place(heap[child], i);
+            i = child;
+        }
+        place(id, i);
+    }
+
+    private void place(int id, int position) {
+        heap[position] = id;
+        heapPositions[id] = position;
+    }
+
+    private static boolean matches(String word, char[] chars, int start, int length) {
+        if (word.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(char[] chars, int start, int length) {
+        int h = 0;
+        for (int i = start; i < start + length; i++) {
+            h = 31 * h + chars[i];
+        }
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
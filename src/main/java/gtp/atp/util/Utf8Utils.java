@@ -0,0 +1,70 @@
+package gtp.atp.util;
+
+import java.io.IOException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Utility methods for decoding UTF-8 input and relating UTF-16 character offsets to UTF-8 byte offsets.
+ */
+public final class Utf8Utils {
+
+    private Utf8Utils() {
+        throw new AssertionError("Cannot instantiate utility class");
+    }
+
+    /**
+     * Computes how many bytes a range of characters occupies when encoded as UTF-8.
+     * Each half of a surrogate pair counts as two bytes, so ranges are additive even if
+     * a boundary falls between the two halves.
+     *
+     * @param chars the character sequence
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     * @return the UTF-8 encoded length of the range in bytes
+     * @throws IndexOutOfBoundsException if the range is not within the sequence
+     */
+    public static long encodedLength(CharSequence chars, int from, int to) {
+        long length = 0;
+        for (int i = from; i < to; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800 || Character.isSurrogate(c)) {
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Creates a UTF-8 decoder that reports malformed input instead of replacing it.
+     *
+     * @return a new strict decoder
+     */
+    public static CharsetDecoder newDecoder() {
+        return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+    }
+
+    /**
+     * Checks the result of a decode step into a buffer sized to hold all of its output.
+     *
+     * @param result the result returned by the decoder
+     * @throws IOException if the input was malformed
+     * @throws IllegalStateException if the output buffer overflowed
+     */
+    public static void checkResult(CoderResult result) throws IOException {
+        if (result.isError()) {
+            result.throwException();
+        }
+        if (result.isOverflow()) {
+            throw new IllegalStateException("Decode buffer overflow");
+        }
+    }
+}
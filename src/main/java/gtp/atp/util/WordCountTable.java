@@ -0,0 +1,374 @@
+package gtp.atp.util;
+
+import gtp.atp.model.WordCount;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Counts occurrences of words in primitive arrays, without an object per word.
+ * The characters of every distinct word are appended to a single character pool, and each word is an
+ * entry in parallel arrays holding its pool offset, hash and count. Entries are found through an
+ * open-addressing hash table of entry numbers with linear probing. A distinct word thus costs its
+ * characters plus twenty to thirty bytes of arrays, against roughly a hundred for a
+ * {@code HashMap<String, Long>} entry with its string and boxed count, and counting a word already
+ * seen allocates nothing.
+ *
+ * <p>Entries are numbered from 0 in the order their words were first counted. The counts can be read
+ * by entry number, streamed with {@link #forEach}, or copied into a map; words are only turned into
+ * strings when asked for. The most frequent words are found with {@link #top(int)} without sorting
+ * the whole vocabulary.
+ *
+ * <p>A table is not thread-safe. Parallel counts use one table per thread and merge them with
+ * {@link #addAll(WordCountTable)}.
+ */
+public final class WordCountTable implements WordScanner.WordSink {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int INITIAL_POOL_CHARS = 8 * 1024;
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    // Entry numbers plus one, so that zero marks a free slot
+    private int[] slots = new int[INITIAL_CAPACITY];
+
+    private char[] pool = new char[INITIAL_POOL_CHARS];
+    private int poolLength;
+
+    // Word i occupies pool[starts[i], starts[i + 1])
+    private int[] starts = new int[INITIAL_CAPACITY / 2 + 1];
+    private int[] hashes = new int[INITIAL_CAPACITY / 2];
+    private long[] counts = new long[INITIAL_CAPACITY / 2];
+    private int size;
+
+    /**
+     * Receives the entries of a table without the words being turned into strings.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        /**
+         * Called once per entry. The characters are only valid during the call.
+         *
+         * @param chars the array holding the word
+         * @param start the index of the word's first character
+         * @param length the number of characters in the word
+         * @param count the number of occurrences counted
+         */
+        void accept(char[] chars, int start, int length, long count);
+    }
+
+    /**
+     * Counts one occurrence of a word.
+     */
+    @Override
+    public void word(char[] chars, int start, int length) {
+        add(chars, start, length, 1);
+    }
+
+    /**
+     * Adds to the count of a word given as a slice of a character array.
+     *
+     * @param chars the array holding the word (cannot be null)
+     * @param start the index of the word's first character
+     * @param length the number of characters in the word
+     * @param count the number of occurrences to add
+     * @throws NullPointerException if chars is null
+     * @throws IndexOutOfBoundsException if the slice is not within the array
+     * @throws IllegalStateException if the table cannot hold any more characters
+     */
+    public void add(char[] chars, int start, int length, long count) {
+        Objects.checkFromIndexSize(start, length, chars.length);
+        int hash = hash(chars, start, length);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot] - 1;
+            if (entry < 0) {
+                slots[slot] = append(chars, start, length, hash, count) + 1;
+                growIfFull();
+                return;
+            }
+            if (hashes[entry] == hash && matches(entry, chars, start, length)) {
+                counts[entry] += count;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Adds to the count of a word.
+     *
+     * @param word the word (cannot be null)
+     * @param count the number of occurrences to add
+     * @throws NullPointerException if word is null
+     * @throws IllegalStateException if the table cannot hold any more characters
+     */
+    public void add(String word, long count) {
+        add(word.toCharArray(), 0, word.length(), count);
+    }
+
+    /**
+     * Adds every count of another table to this one, copying words straight from its pool.
+     *
+     * @param other the table to merge in (cannot be null)
+     * @throws NullPointerException if other is null
+     * @throws IllegalStateException if the table cannot hold any more characters
+     */
+    public void addAll(WordCountTable other) {
+        other.forEach((chars, start, length, count) -> add(chars, start, length, count));
+    }
+
+    /**
+     * Gets the count of a word.
+     *
+     * @param word the word to look up (cannot be null)
+     * @return the number of occurrences counted, or 0 if the word was never seen
+     * @throws NullPointerException if word is null
+     */
+    public long get(String word) {
+        int hash = spread(word.hashCode());
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int entry = slots[slot] - 1;
+            if (hashes[entry] == hash && matches(entry, word)) {
+                return counts[entry];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the number of distinct words counted.
+     *
+     * @return the number of entries in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the word of an entry, as a new string.
+     *
+     * @param index the entry number, from 0 to {@link #size()} - 1
+     * @return the word
+     * @throws IndexOutOfBoundsException if index is out of range
+     */
+    public String wordAt(int index) {
+        Objects.checkIndex(index, size);
+        return new String(pool, starts[index], starts[index + 1] - starts[index]);
+    }
+
+    /**
+     * Gets the count of an entry.
+     *
+     * @param index the entry number, from 0 to {@link #size()} - 1
+     * @return the number of occurrences counted
+     * @throws IndexOutOfBoundsException if index is out of range
+     */
+    public long countAt(int index) {
+        Objects.checkIndex(index, size);
+        return counts[index];
+    }
+
+    /**
+     * Passes every entry to a consumer in entry order, without creating strings.
+     *
+     * @param consumer the receiver of the entries (cannot be null)
+     * @throws NullPointerException if consumer is null
+     */
+    public void forEach(EntryConsumer consumer) {
+        Objects.requireNonNull(consumer, "Entry consumer cannot be null");
+        for (int i = 0; i < size; i++) {
+            consumer.accept(pool, starts[i], starts[i + 1] - starts[i], counts[i]);
+        }
+    }
+
+    /**
+     * Passes every word and its count to a consumer in entry order.
+     *
+     * @param consumer the receiver of the words and counts (cannot be null)
+     * @throws NullPointerException if consumer is null
+     */
+    public void forEach(ObjLongConsumer<String> consumer) {
+        Objects.requireNonNull(consumer, "Word consumer cannot be null");
+        for (int i = 0; i < size; i++) {
+            consumer.accept(wordAt(i), counts[i]);
+        }
+    }
+
+    /**
+     * Gets the most frequent words, from most to least frequent, with words of equal count in
+     * alphabetical order. A bounded min-heap of the best entries seen so far is kept while the
+     * entries are scanned once, costing O(n log k) time and O(k) space for n distinct words.
+     *
+     * @param k the most words to return
+     * @return up to k exact word counts
+     * @throws IllegalArgumentException if k is not positive
+     */
+    public List<WordCount> top(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be greater than 0");
+        }
+
+        // heap[0] is the lowest ranked of the entries kept
+        int[] heap = new int[Math.min(k, size)];
+        int heapSize = 0;
+        for (int entry = 0; entry < size; entry++) {
+            if (heapSize < heap.length) {
+                heap[heapSize] = entry;
+                siftUp(heap, heapSize++);
+            } else if (compareRank(entry, heap[0]) > 0) {
+                heap[0] = entry;
+                siftDown(heap, heapSize, 0);
+            }
+        }
+
+        WordCount[] top = new WordCount[heapSize];
+        while (heapSize > 0) {
+            int entry = heap[0];
+            top[--heapSize] = new WordCount(wordAt(entry), counts[entry]);
+            heap[0] = heap[heapSize];
+            siftDown(heap, heapSize, 0);
+        }
+        return List.of(top);
+    }
+
+    /**
+     * Compares two entries by count, then by word in reverse, so that a positive result means
+     * the first entry ranks higher.
+     */
+    private int compareRank(int a, int b) {
+        int byCount = Long.compare(counts[a], counts[b]);
+        if (byCount != 0) {
+            return byCount;
+        }
+        return Arrays.compare(pool, starts[b], starts[b + 1], pool, starts[a], starts[a + 1]);
+    }
+
+    private void siftUp(int[] heap, int i) {
+        int entry = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (compareRank(heap[parent], entry) <= 0) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+    }
+
+    private void siftDown(int[] heap, int heapSize, int i) {
+        int entry = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && compareRank(heap[child + 1], heap[child]) < 0) {
+                child++;
+            }
+            if (compareRank(heap[child], entry) >= 0) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = entry;
+    }
+
+    /**
+     * Copies the counts into a map.
+     *
+     * @return a new map from each word to its count
+     */
+    public Map<String, Long> toMap() {
+        Map<String, Long> map = HashMap.newHashMap(size);
+        forEach(map::put);
+        return map;
+    }
+
+    /**
+     * Appends a new entry and returns its number.
+     */
+    private int append(char[] chars, int start, int length, int hash, long count) {
+        if (length > pool.length - poolLength) {
+            if (length > MAX_ARRAY_LENGTH - poolLength) {
+                throw new IllegalStateException("Word count table is full");
+            }
+            long grown = Math.max((long) poolLength + length, (long) pool.length * 2);
+            pool = Arrays.copyOf(pool, (int) Math.min(grown, MAX_ARRAY_LENGTH));
+        }
+        if (size == counts.length) {
+            int capacity = counts.length * 2;
+            starts = Arrays.copyOf(starts, capacity + 1);
+            hashes = Arrays.copyOf(hashes, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        System.arraycopy(chars, start, pool, poolLength, length);
+        poolLength += length;
+        hashes[size] = hash;
+        counts[size] = count;
+        starts[size + 1] = poolLength;
+        return size++;
+    }
+
+    /**
+     * Doubles the slot table once it is two thirds full, so probe sequences stay short.
+     * Only entry numbers move; the entries themselves stay where they are.
+     */
+    private void growIfFull() {
+        if (size * 3L <= slots.length * 2L) {
+            return;
+        }
+        int[] grown = new int[slots.length * 2];
+        int mask = grown.length - 1;
+        for (int entry = 0; entry < size; entry++) {
+            int slot = hashes[entry] & mask;
+            while (grown[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            grown[slot] = entry + 1;
+        }
+        slots = grown;
+    }
+
+    private boolean matches(int entry, char[] chars, int start, int length) {
+        int from = starts[entry];
+        return starts[entry + 1] - from == length
+                && Arrays.equals(pool, from, from + length, chars, start, start + length);
+    }
+
+    private boolean matches(int entry, String word) {
+        int from = starts[entry];
+        if (starts[entry + 1] - from != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (pool[from + i] != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hashes a word the same way as {@link String#hashCode()}, so lookups by string need no copy.
+     */
+    private static int hash(char[] chars, int start, int length) {
+        int h = 0;
+        for (int i = start; i < start + length; i++) {
+            h = 31 * h + chars[i];
+        }
+        return spread(h);
+    }
+
+    /**
+     * Mixes the high bits of a string hash into the low bits used to pick a slot.
+     */
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
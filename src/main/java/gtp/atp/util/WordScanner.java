@@ -0,0 +1,129 @@
+package gtp.atp.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Splits text fed in chunks into lowercase words, without regular expressions or intermediate strings.
+ * A word is a maximal run of the characters matched by {@code \w}: ASCII letters, digits and the
+ * underscore. Every other character separates words.
+ *
+ * <p>Words lying wholly inside a chunk are lowercased in place and handed to the sink as a slice of
+ * the chunk. Only a word cut by the end of a chunk is copied, into a buffer that grows to the longest
+ * such word, so memory use does not depend on the length of the text.
+ *
+ * <p>A scanner keeps state between chunks and is not thread-safe.
+ */
+public final class WordScanner {
+    private static final int INITIAL_CARRY_CHARS = 64;
+
+    private char[] carry = new char[INITIAL_CARRY_CHARS];
+    private int carryLength;
+
+    /**
+     * Receives the words found by a scanner.
+     */
+    @FunctionalInterface
+    public interface WordSink {
+        /**
+         * Called once per word. The characters are only valid during the call.
+         *
+         * @param chars the array holding the lowercase word
+         * @param start the index of the word's first character
+         * @param length the number of characters in the word
+         */
+        void word(char[] chars, int start, int length);
+    }
+
+    /**
+     * Checks whether a character can be part of a word.
+     *
+     * @param c the character to check
+     * @return true for ASCII letters, digits and the underscore
+     */
+    public static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * Scans the next chunk of text. Uppercase letters in the chunk are lowercased in place.
+     * A word running into the end of the chunk is held back until the next chunk or {@link #finish}.
+     *
+     * @param chunk the array holding the text (cannot be null)
+     * @param from the index of the first character to scan
+     * @param to the index just past the last character to scan
+     * @param sink the receiver of complete words (cannot be null)
+     * @throws NullPointerException if chunk or sink is null
+     * @throws IndexOutOfBoundsException if the range is not within the chunk
+     */
+    public void feed(char[] chunk, int from, int to, WordSink sink) {
+        Objects.requireNonNull(chunk, "Chunk cannot be null");
+        Objects.checkFromToIndex(from, to, chunk.length);
+        Objects.requireNonNull(sink, "Word sink cannot be null");
+
+        int i = from;
+        if (carryLength > 0) {
+            int end = wordEnd(chunk, i, to);
+            append(chunk, i, end);
+            if (end == to) {
+                return;
+            }
+            sink.word(carry, 0, carryLength);
+            carryLength = 0;
+            i = end;
+        }
+
+        while (i < to) {
+            if (!isWordChar(chunk[i])) {
+                i++;
+                continue;
+            }
+            int start = i;
+            i = wordEnd(chunk, i, to);
+            if (i == to) {
+                append(chunk, start, to);
+            } else {
+                sink.word(chunk, start, i - start);
+            }
+        }
+    }
+
+    /**
+     * Hands over the word held back at the end of the last chunk, if any, and resets the scanner.
+     *
+     * @param sink the receiver of the last word (cannot be null)
+     * @throws NullPointerException if sink is null
+     */
+    public void finish(WordSink sink) {
+        Objects.requireNonNull(sink, "Word sink cannot be null");
+        if (carryLength > 0) {
+            sink.word(carry, 0, carryLength);
+            carryLength = 0;
+        }
+    }
+
+    /**
+     * Lowercases the word starting at the given index and returns the index just past it.
+     */
+    private static int wordEnd(char[] chars, int i, int to) {
+        while (i < to) {
+            char c = chars[i];
+            if (c >= 'A' && c <= 'Z') {
+                chars[i] = (char) (c + ('a' - 'A'));
+            } else if (!isWordChar(c)) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private void append(char[] chars, int from, int to) {
+        int length = to - from;
+        if (carryLength + length > carry.length) {
+            carry = Arrays.copyOf(carry, Math.max(carry.length * 2, carryLength + length));
+        }
+        System.arraycopy(chars, from, carry, carryLength, length);
+        carryLength += length;
+    }
+}
@@ -0,0 +1,75 @@
+package gtp.atp.service;
+
+import gtp.atp.model.FileMatch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MappedFileSearcherTest {
+    private static final int WINDOW_BYTES = 100;
+    private static final int MAX_MATCH_LENGTH = 20;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsTheSameMatchesAsAWholeInputSearchAcrossWindows() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            builder.append("line").append(i).append(i % 7 == 0 ? " numéro ünïcode" : " number").append('\n');
+        }
+        String text = builder.toString();
+        Path file = directory.resolve("input.txt");
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+
+        String[] regexes = {
+                "^\\w+",
+                "(?m)^\\w+",
+                "\\bumber",
+                "\\Bumber",
+                "\\A\\w",
+                "\\w{1,5}$",
+                "(?m)$",
+                "(?<=\\d )n\\w*",
+                "(?<![a-z])\\d+",
+                "\\p{L}+",
+                "a*",
+        };
+        for (String regex : regexes) {
+            Pattern pattern = Pattern.compile(regex);
+            List<FileMatch> found = new ArrayList<>();
+            long count = new MappedFileSearcher(pattern, WINDOW_BYTES, MAX_MATCH_LENGTH).search(file, found::add);
+            List<FileMatch> expected = expectedMatches(pattern, text);
+            assertEquals(expected, found, regex);
+            assertEquals(expected.size(), count, regex);
+        }
+    }
+
+    @Test
+    void rejectsPreviousMatchAnchor() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new MappedFileSearcher(Pattern.compile("\\Ga"), WINDOW_BYTES, MAX_MATCH_LENGTH));
+    }
+
+    private static List<FileMatch> expectedMatches(Pattern pattern, String text) {
+        List<FileMatch> matches = new ArrayList<>();
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            long byteStart = text.substring(0, matcher.start()).getBytes(StandardCharsets.UTF_8).length;
+            long byteEnd = text.substring(0, matcher.end()).getBytes(StandardCharsets.UTF_8).length;
+            matches.add(new FileMatch(matcher.group(), byteStart, byteEnd, matcher.start(), matcher.end()));
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,59 @@
+package gtp.atp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StreamingReplacerTest {
+    private static final int WINDOW_CHARS = 20;
+    private static final int MAX_MATCH_LENGTH = 8;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replacesLikeReplaceAllAcrossWindows() throws IOException {
+        String longWord = "w".repeat(104);
+        String text = longWord + " alpha beta\ngamma  delta\n\nepsilon " + longWord + "\nzeta eta theta iota kappa";
+
+        String[][] cases = {
+                {"^\\w|\\b\\w", "#"},
+                {"(?m)^\\w{1,6}", "[$0]"},
+                {"\\A\\w", "<"},
+                {"\\Bw", "-"},
+                {"(?<=a)\\s", "_"},
+                {"(?<![a-z])e\\w*", "E"},
+                {"\\w{1,5}$", "!"},
+                {"(?m)$", ";"},
+                {"(\\w)(\\w)", "$2$1"},
+                {"a*", "."},
+        };
+        for (String[] replaceCase : cases) {
+            Pattern pattern = Pattern.compile(replaceCase[0]);
+            assertEquals(pattern.matcher(text).replaceAll(replaceCase[1]),
+                    replace(pattern, text, replaceCase[1]), replaceCase[0]);
+        }
+    }
+
+    @Test
+    void rejectsPreviousMatchAnchor() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new StreamingReplacer(Pattern.compile("\\Ga"), WINDOW_CHARS, MAX_MATCH_LENGTH));
+    }
+
+    private String replace(Pattern pattern, String text, String replacement) throws IOException {
+        Path source = directory.resolve("source.txt");
+        Path target = directory.resolve("target.txt");
+        Files.writeString(source, text, StandardCharsets.UTF_8);
+        new StreamingReplacer(pattern, WINDOW_CHARS, MAX_MATCH_LENGTH).replace(source, target, replacement);
+        return Files.readString(target, StandardCharsets.UTF_8);
+    }
+}